@@ -1,12 +1,20 @@
 package app.GridWorld;
 
 import java.util.Set;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.LinkedHashMap;
 import java.util.List;
 
-class MDP implements lib.mcts.MDP<State, Action> {
+import lib.mcts.ChanceMDP;
+import lib.mcts.RandomSource;
+
+class MDP implements ChanceMDP<State, Action, MDP.Intent> {
+
+  /**
+   * The afterstate of a move: the agent in a state intending to go in a direction, before it may slip.
+   */
+  record Intent(State state, Action action) {}
 
   private final int xSize;
   private final int ySize;
@@ -14,8 +22,13 @@ class MDP implements lib.mcts.MDP<State, Action> {
   private final double transitionProbability;
   private final State startingLocation;
   private final Map<State, State> rewardStates;
+  private final RandomSource random;
 
   MDP(int xSize, int ySize, List<Reward> rewards, double transitionProbability, State startingLocation) {
+    this(xSize, ySize, rewards, transitionProbability, startingLocation, RandomSource.create());
+  }
+
+  MDP(int xSize, int ySize, List<Reward> rewards, double transitionProbability, State startingLocation, RandomSource random) {
     this.xSize = xSize;
     this.ySize = ySize;
     assert rewards != null : "rewards";
@@ -24,6 +37,8 @@ class MDP implements lib.mcts.MDP<State, Action> {
     assert startingLocation != null : "startingLocation";
     this.startingLocation = startingLocation;
     this.rewardStates = new LinkedHashMap<>();
+    assert random != null : "random";
+    this.random = random;
   }
 
   static Reward any(List<Reward> list, Position item) {
@@ -51,6 +66,18 @@ class MDP implements lib.mcts.MDP<State, Action> {
 
   @Override
   public State transition(State state, Action action) {
+    return transition(state, action, random);
+  }
+
+  @Override
+  public Intent afterstate(State state, Action action) {
+    return new Intent(state, action);
+  }
+
+  @Override
+  public State outcome(Intent intent, RandomSource random) {
+    var state = intent.state();
+    var action = intent.action();
     if (state.isTerminal) {
       return state;
     } else if (any(rewards,state) != null) {
@@ -63,7 +90,7 @@ class MDP implements lib.mcts.MDP<State, Action> {
       return state;
     }
 
-    if (Math.random() < transitionProbability){
+    if (random.nextDouble() < transitionProbability){
       return targetNeighbour;
     } else {
       var actions = Action.values();
@@ -77,7 +104,7 @@ class MDP implements lib.mcts.MDP<State, Action> {
         }
       }
       if (i > 0) {
-        return nonTargetNeighbours[(int)(Math.random() * i)];
+        return nonTargetNeighbours[random.nextInt(i)];
       }
       throw new IllegalStateException("No valid neighbours exist");
     }
@@ -85,7 +112,7 @@ class MDP implements lib.mcts.MDP<State, Action> {
 
   @Override
   public Set<Action> actions(State state) {
-    var set = new HashSet<Action>();
+    var set = EnumSet.noneOf(Action.class);
     for (var a:Action.values()) {
       if (state.isNeighbourValid(a, xSize, ySize)) {
         set.add(a);
@@ -1,10 +1,15 @@
 package app.GridWorld;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
 import app.ExtendedStatelessSolver;
+import lib.mcts.Option;
+import lib.mcts.OptionMDP;
+import lib.mcts.StatefulSolver;
 
 public class Main {
   public static void main(String...args) throws Exception {
@@ -17,6 +22,7 @@ public class Main {
 
     solveWorld(rewards);
     solveSingle(rewards);
+    solveMacro(rewards);
   }
 
   static void solveWorld(List<Reward> rewards) throws Exception {
@@ -39,4 +45,21 @@ public class Main {
     Files.writeString(path, explorationTermHistory.toString() + ' ' + explorationTermHistory.size());
   }
 
+  static void solveMacro(List<Reward> rewards) {
+
+    // Single moves, and runs of up to three moves in the same direction
+    var options = new ArrayList<Option<State, Action>>();
+    for (var a:Action.values()) {
+      options.add(Option.primitive(a));
+      options.add(Option.sequence(Collections.nCopies(3, a)));
+    }
+
+    var gridworld = new MDP(8, 5, rewards, 0.8, new State(7, 0, false));
+    var macro = new OptionMDP<>(gridworld, state -> options, 3, 0.95);
+    var macroSolver = new StatefulSolver<>(macro, 999, 0.28, 0.95, false);
+
+    macroSolver.runTreeSearch(999);
+    System.out.println("Optimal option: " + macroSolver.extractOptimalAction());
+  }
+
 }
@@ -14,4 +14,9 @@ class Position {
     return obj instanceof Position p && x == p.x && y == p.y;
   }
 
+  @Override
+  public int hashCode() {
+    return 31 * x + y;
+  }
+
 }
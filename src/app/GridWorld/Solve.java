@@ -5,7 +5,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import lib.mcts.GenericSolver;
+import lib.mcts.ChanceSolver;
+import lib.mcts.RolloutPolicy;
 
 class Solve {
 
@@ -55,10 +56,12 @@ class Solve {
         if (rewardLocations.contains(key)) continue;
 
         var gridworld = new MDP(xSize, ySize, rewards, transitionProbability, new State(x, y, false));
-        var solver = new GenericSolver<>(gridworld, iterations, exploreConstant, rewardDiscount, verbose);
+        // Closed loop over the slips, with the first-action rollouts of the original solver
+        var solver = new ChanceSolver<>(gridworld, simDepth, exploreConstant, rewardDiscount, verbose);
+        solver.rolloutPolicy(RolloutPolicy.first());
 
         // println("Solving at [$x, $y]")
-        solver.runTreeSearch(simDepth);
+        solver.runTreeSearch(iterations);
         // solver.displayTree()
         // println("Optimal action: ${solver.getNextOptimalAction()}")
 
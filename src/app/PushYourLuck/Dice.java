@@ -1,6 +1,6 @@
 package app.PushYourLuck;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 class Dice {
 
@@ -20,9 +20,7 @@ class Dice {
     this.diceConfig = pips(this.nDice, this.nSides);
   }
 
-  static final Random random = new Random();
-
-  boolean[][] roll() {
+  boolean[][] roll(RandomGenerator random) {
     var nMarkedSides = markedSides.length;
     // For each dice generate a random integer between (including) 0 to nSides-1
     var diceRollResults = new int[nMarkedSides];
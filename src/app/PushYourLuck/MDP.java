@@ -1,19 +1,32 @@
 package app.PushYourLuck;
 
 import java.util.Set;
+import java.util.EnumSet;
+import java.util.Collections;
+
+import lib.mcts.RandomSource;
 
 class MDP implements lib.mcts.MDP<State,Action> {
 
   private final int nDice;
   private final int nSides;
   private Dice diceObject;
+  private final RandomSource random;
 
   MDP(int nDice, int nSides) {
+    this(nDice, nSides, RandomSource.create());
+  }
+
+  MDP(int nDice, int nSides, RandomSource random) {
     this.nDice = nDice;
     this.nSides = nSides;
     this.diceObject = new Dice(this.nDice, this.nSides, 0.0);
+    assert random != null : "random";
+    this.random = random;
   }
 
+  static final Set<Action> allActions = Collections.unmodifiableSet(EnumSet.allOf(Action.class));
+
   @Override
   public State initialState() {
     return new State(diceObject.markedSides);
@@ -21,10 +34,15 @@ class MDP implements lib.mcts.MDP<State,Action> {
 
   @Override
   public State transition(State state, Action action) {
+    return transition(state, action, random);
+  }
+
+  @Override
+  public State transition(State state, Action action, RandomSource random) {
     assert state != null && action != null;
     return switch(action) {
       case ROLL -> {
-        yield new State(diceObject.roll());
+        yield new State(diceObject.roll(random));
       }
       case CASHOUT -> {
         diceObject.cashOut();
@@ -48,7 +66,7 @@ class MDP implements lib.mcts.MDP<State,Action> {
   @Override
   public Set<Action> actions(State state) {
     assert state != null;
-    return Set.of(Action.values());
+    return allActions;
   }
 
 }
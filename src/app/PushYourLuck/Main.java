@@ -10,6 +10,8 @@ public class Main {
 
     var pylMDP = new MDP(1,6);
     var solver = new ExtendedStatelessSolver<>( pylMDP, 999, 0.07, 0.99, false );
+    // The game never ends; grow the tree only as deep as rewards are worth 1% of their value
+    solver.automaticTreeDepthLimit(0.01);
 
     solver.runTreeSearch(999);
     solver.displayTree(3);
@@ -0,0 +1,69 @@
+package app.Reversi;
+
+import lib.mcts.StateCodec;
+
+/**
+ * Encodes a board in two longs, one bit per square for each colour.
+ *
+ * The four centre squares are occupied from the start and never emptied, so a centre square that is not dark must be
+ * light; the light bits of the centre squares are therefore free and hold the player to move instead.
+ */
+class Codec implements StateCodec<State, Codec.Bitboards> {
+
+  record Bitboards(long dark, long light) {}
+
+  private final int size;
+  private final int[] centre;
+
+  Codec(int size) {
+    assert fits(size) : "size";
+    this.size = size;
+    var h = size / 2;
+    this.centre = new int[] { (h-1)*size + h-1, (h-1)*size + h, h*size + h-1, h*size + h };
+  }
+
+  static boolean fits(int size) {
+    return size >= 2 && size % 2 == 0 && size * size <= Long.SIZE;
+  }
+
+  @Override
+  public Bitboards encode(State state) {
+    var dark = 0L;
+    var light = 0L;
+    for (var r = 0; r < size; r++) {
+      for (var c = 0; c < size; c++) {
+        var bit = 1L << (r * size + c);
+        switch (state.squares[r][c]) {
+          case DARK -> dark |= bit;
+          case LIGHT -> light |= bit;
+          case EMPTY -> {}
+        }
+      }
+    }
+    for (var i:centre) {
+      light &= ~(1L << i);
+    }
+    var player = state.currentPlayer.ordinal();
+    if ((player & 1) != 0) light |= 1L << centre[0];
+    if ((player & 2) != 0) light |= 1L << centre[1];
+    return new Bitboards(dark, light);
+  }
+
+  @Override
+  public State decode(Bitboards code) {
+    var light = code.light();
+    var player = ((light >>> centre[0]) & 1) | (((light >>> centre[1]) & 1) << 1);
+    for (var i:centre) {
+      light = (light & ~(1L << i)) | (~code.dark() & (1L << i));
+    }
+    var g = new Square[size][size];
+    for (var r = 0; r < size; r++) {
+      for (var c = 0; c < size; c++) {
+        var bit = 1L << (r * size + c);
+        g[r][c] = (code.dark() & bit) != 0 ? Square.DARK : (light & bit) != 0 ? Square.LIGHT : Square.EMPTY;
+      }
+    }
+    return new State(g, Square.values()[(int)player]);
+  }
+
+}
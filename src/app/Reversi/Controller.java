@@ -1,7 +1,7 @@
 package app.Reversi;
 
 import java.util.Set;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,7 +45,7 @@ class Controller {
   }
 
   static Set<Position> resolveFeasibleMoves(State state, Square player) {
-    var moves = new HashSet<Position>();
+    var moves = new LinkedHashSet<Position>();
     for (var r = 0; r < state.size; r++) {
       for (var c = 0; c < state.size; c++) {
         var p = new Position(r,c);
@@ -168,6 +168,61 @@ class Controller {
     return flips.isEmpty() ? Collections.emptyList() : flips;
   }
 
+  /**
+   * Returns the squares the given move would flip as a bit mask indexed by `x * size + y`, without allocating.
+   * Only boards of up to 64 squares can be described this way.
+   */
+  static long flipMask(State state, int x, int y, Square player) {
+    if (state.squares[x][y] != Square.EMPTY) {
+      return 0L;
+    }
+
+    var flips = 0L;
+    for (var dx = -1; dx <= 1; dx++) {
+      for (var dy = -1; dy <= 1; dy++) {
+        if (dx == 0 && dy == 0) continue;
+
+        var ray = 0L;
+        var r = x + dx;
+        var c = y + dy;
+        for (;;) {
+          // Out of bounds or unflippable
+          if (r < 0 || c < 0 || r >= state.size || c >= state.size || state.squares[r][c] == Square.EMPTY) {
+            ray = 0L;
+            break;
+          }
+          // Flipping has completed
+          if (state.squares[r][c] == player) {
+            break;
+          }
+          ray |= 1L << (r * state.size + c);
+          r += dx;
+          c += dy;
+        }
+        flips |= ray;
+      }
+    }
+    return flips;
+  }
+
+  static boolean anyFlips(State state, Square player) {
+    for (var r = 0; r < state.size; r++) {
+      for (var c = 0; c < state.size; c++) {
+        if (flipMask(state, r, c, player) != 0L) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static void setAll(State state, long mask, Square player) {
+    for (; mask != 0L; mask &= mask - 1) {
+      var i = Long.numberOfTrailingZeros(mask);
+      state.squares[i / state.size][i % state.size] = player;
+    }
+  }
+
   static void north(Position p) { p.x--; }
   static void east(Position p) { p.y++; }
   static void south(Position p) { p.x++; }
@@ -1,13 +1,31 @@
 package app.Reversi;
 
 import java.util.ArrayList;
+import java.util.Set;
 
-import lib.mcts.StateNode;
+import lib.mcts.RandomSource;
 
 class Heuristic extends Solver {
 
   Heuristic(State initialState) {
     super(initialState);
+    var player = initialState.currentPlayer;
+    rolloutPolicy(Heuristic::bestAction);
+    leafEvaluator(state -> evaluate(state, player));
+    rolloutDepthLimit(10);
+  }
+
+  /**
+   * Turns on the enhancements of the [Solver], and seeds new nodes with the [actionWeight] of their moves as priors,
+   * with virtual visits and a progressive bias.
+   */
+  @Override
+  Heuristic enhance() {
+    super.enhance();
+    actionPrior(Heuristic::actionWeight);
+    priorVisits(5);
+    progressiveBias(1);
+    return this;
   }
 
   static final int[][] heuristicWeight = {
@@ -21,67 +39,60 @@ class Heuristic extends Solver {
     { 100, -10, 11, 6, 6, 11, -10, 100 }
   };
 
-  @Override
-  public double simulate(StateNode<State, Position> node) {
-    assert node != null : "node";
-    traceln("Simulation:");
-
-    // If state is terminal, the reward is defined by MDP
-    if (node.isTerminal()) {
-      traceln("Terminal state reached");
-      var parent = node.parent();
-      return mdp.reward(parent != null ? parent.state() : null, node.inducingAction(), node.state());
-    }
-
-    var depth = 0;
-    var currentState = node.state();
-    var discount = rewardDiscountFactor;
-
-    for (;;) {
-      var validActions = mdp.actions(currentState);
+  static final int totalWeight = totalWeight(heuristicWeight);
 
-      var bestActionScore = Integer.MIN_VALUE;
-      var bestActions = new ArrayList<Position>();
+  /**
+   * Chooses randomly among the actions with the highest [heuristicWeight].
+   */
+  static Position bestAction(State state, Set<Position> validActions, RandomSource random) {
+    var bestActionScore = Integer.MIN_VALUE;
+    var bestActions = new ArrayList<Position>();
 
-      for (var action:validActions) {
-        var score = heuristicWeight[action.x][action.y];
-        if (score > bestActionScore) {
-          bestActionScore = score;
-          bestActions.clear();
-        }
-        if (score == bestActionScore) {
-          bestActions.add(action);
-        }
+    for (var action:validActions) {
+      var score = heuristicWeight[action.x][action.y];
+      if (score > bestActionScore) {
+        bestActionScore = score;
+        bestActions.clear();
       }
-
-      var randomAction = bestActions.stream().findAny().get();
-      var newState = mdp.transition(currentState, randomAction);
-
-      if (verbose()) {
-        trace("-> " + randomAction);
-        trace("=> " + newState);
+      if (score == bestActionScore) {
+        bestActions.add(action);
       }
+    }
 
-      if (mdp.isTerminal(newState)) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Terminal state reached : " + reward);
-        }
-        return reward;
-      }
+    return random.choose(bestActions);
+  }
 
-      currentState = newState;
-      depth++;
-      discount *= rewardDiscountFactor;
+  /**
+   * The [heuristicWeight] of the action scaled to the [-1,1] range of [MDP.reward], so that corners count as wins.
+   */
+  static double actionWeight(State state, Position action) {
+    return heuristicWeight[action.x][action.y] / 100.0;
+  }
 
-      if (depth > simulationDepthLimit) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Depth limit reached: " + reward);
+  /**
+   * Scores the board by [heuristicWeight] from the given player's point of view, scaled to the [-1,1] range of
+   * [MDP.reward].
+   */
+  static double evaluate(State state, Square player) {
+    var opponent = Controller.getOpponent(player);
+    var score = 0;
+    for (var r = 0; r < state.size; r++) {
+      for (var c = 0; c < state.size; c++) {
+        var square = state.squares[r][c];
+        if (square == player) {
+          score += heuristicWeight[r][c];
+        } else if (square == opponent) {
+          score -= heuristicWeight[r][c];
         }
-        return reward;
       }
     }
+    return (double)score / totalWeight;
+  }
+
+  static int totalWeight(int[][] weights) {
+    var total = 0;
+    for (var row:weights) for (var w:row) total += Math.abs(w);
+    return total;
   }
 
 }
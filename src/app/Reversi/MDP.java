@@ -1,13 +1,21 @@
 package app.Reversi;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
-class MDP implements lib.mcts.MDP<State, Position> {
+import lib.mcts.AdversarialMDP;
+import lib.mcts.BatchMDP;
+import lib.mcts.MutableMDP;
+import lib.mcts.RandomSource;
+
+class MDP implements MutableMDP<State, Position>, AdversarialMDP<State, Position>, BatchMDP<State, Position> {
 
   private final State initialState;
 
   MDP(State initialState) {
     assert initialState != null : "initialState";
+    assert initialState.size * initialState.size <= Long.SIZE : "flip masks need a board of at most 64 squares";
     this.initialState = initialState;
   }
 
@@ -28,6 +36,15 @@ class MDP implements lib.mcts.MDP<State, Position> {
     return state.currentPlayer.equals(Square.EMPTY);
   }
 
+  /**
+   * The initial player is player 0, as [reward] scores states from their point of view.
+   */
+  @Override
+  public int playerToMove(State state) {
+    assert state != null : "state";
+    return state.currentPlayer == initialState.currentPlayer ? 0 : 1;
+  }
+
   @Override
   public double reward(State previousState, Position action, State state) {
     assert state != null : "state";
@@ -54,4 +71,60 @@ class MDP implements lib.mcts.MDP<State, Position> {
     return newState;
   }
 
+  /**
+   * Plays each move on a copy of the board by its flip mask, which skips the list of flipped positions and the search
+   * for feasible moves that [transition] goes through.
+   */
+  @Override
+  public List<State> transitionAll(State state, List<Position> actions, RandomSource random) {
+    assert state != null : "state";
+    assert actions != null : "actions";
+    var states = new ArrayList<State>(actions.size());
+    for (var action:actions) {
+      var newState = state.copy();
+      apply(newState, action, random);
+      states.add(newState);
+    }
+    return states;
+  }
+
+  /**
+   * Plays the move in place; the token is the mask of flipped squares, which together with the disc placed on the
+   * move's square is enough to restore the board and the player to move.
+   */
+  @Override
+  public long apply(State state, Position action, RandomSource random) {
+    assert state != null : "state";
+    assert action != null : "action";
+    var player = state.currentPlayer;
+    var flips = Controller.flipMask(state, action.x, action.y, player);
+
+    if (flips != 0L) {
+      Controller.setAll(state, flips, player);
+      state.set(action, player);
+
+      var nextPlayer = Controller.getOpponent(player);
+
+      if (Controller.anyFlips(state, nextPlayer)) {
+        state.currentPlayer = nextPlayer;
+      } else if (!Controller.anyFlips(state, player)) {
+        state.currentPlayer = Square.EMPTY;
+      }
+    }
+
+    return flips;
+  }
+
+  @Override
+  public void undo(State state, Position action, long token) {
+    assert state != null : "state";
+    assert action != null : "action";
+    if (token != 0L) {
+      var player = state.squares[action.x][action.y];
+      Controller.setAll(state, token, Controller.getOpponent(player));
+      state.set(action, Square.EMPTY);
+      state.currentPlayer = player;
+    }
+  }
+
 }
@@ -1,10 +1,24 @@
 package app.Reversi;
 
+import java.util.Arrays;
 import java.util.function.Function;
 
 class Main {
   public static void main(String...args) throws Exception {
-    new Main().adversarialSim();
+    new Main(Arrays.asList(args).contains("--enhanced")).adversarialSim();
+  }
+
+  /**
+   * Whether the players search with [Solver.enhance] on.
+   */
+  final boolean enhanced;
+
+  Main(boolean enhanced) {
+    this.enhanced = enhanced;
+  }
+
+  Solver configure(Solver solver) {
+    return enhanced ? solver.enhance() : solver;
   }
 
   record Player(String name, Function<State,Position> move) {
@@ -70,8 +84,8 @@ class Main {
 
     var iterations = 20;
     Player[] players = {
-      new Player("Heuristic", s -> new Heuristic(s).getMove()),
-      new Player("Base", s -> new Solver(s).getMove())
+      new Player("Heuristic", s -> configure(new Heuristic(s)).getMove()),
+      new Player("Base", s -> configure(new Solver(s)).getMove())
     };
 
     simulate(players, iterations);
@@ -12,4 +12,14 @@ class Position {
     this.x = p.x; this.y = p.y;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Position p && x == p.x && y == p.y;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * x + y;
+  }
+
 }
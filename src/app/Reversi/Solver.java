@@ -8,6 +8,22 @@ class Solver extends StatefulSolver<State, Position> {
     super(new MDP(initialState), 999, 1.4D, 0.9D, false);
   }
 
+  /**
+   * Turns on the search enhancements that suit Reversi: boards kept encoded by the [Codec] where they fit it, all
+   * moves of a position expanded at once, symmetric moves merged, and won and lost positions proven.
+   */
+  Solver enhance() {
+    var size = mdp.initialState().size;
+    if (Codec.fits(size)) {
+      stateCodec(new Codec(size));
+    }
+    bulkExpansion(true);
+    symmetry(new Symmetries(size));
+    proving(true);
+    valueBounds(-1, 1);
+    return this;
+  }
+
   Position getMove() {
     runTreeSearch(999);
     var action = extractOptimalAction();
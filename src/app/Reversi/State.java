@@ -8,7 +8,7 @@ class State { // -> Board
   final int size;
   Square currentPlayer;
 
-  private State(Square[][] grid, Square player) {
+  State(Square[][] grid, Square player) {
     this.squares = grid;
     this.size = grid.length;
     this.currentPlayer = player;
@@ -51,4 +51,9 @@ class State { // -> Board
         && Arrays.deepEquals(squares, s.squares);
   }
 
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.deepHashCode(squares) + currentPlayer.ordinal();
+  }
+
 }
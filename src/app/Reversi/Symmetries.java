@@ -0,0 +1,64 @@
+package app.Reversi;
+
+import lib.mcts.Symmetry;
+
+/**
+ * The eight rotations and reflections of the square board.
+ *
+ * Symmetry i transposes the board if bit 2 is set, and then reverses the rows if bit 0 is set and the columns if bit 1
+ * is set; the opening position is left unchanged by four of them, so the four opening moves are searched as one.
+ */
+class Symmetries implements Symmetry<State, Position> {
+
+  private final int size;
+
+  Symmetries(int size) {
+    this.size = size;
+  }
+
+  @Override
+  public int count() {
+    return 8;
+  }
+
+  @Override
+  public State state(int symmetry, State state) {
+    var image = state.copy();
+    for (var r = 0; r < size; r++) {
+      for (var c = 0; c < size; c++) {
+        image.squares[x(symmetry, r, c)][y(symmetry, r, c)] = state.squares[r][c];
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Compares the squares with their images in place, so that the boards of most positions are rejected after a few
+   * squares.
+   */
+  @Override
+  public boolean isInvariant(int symmetry, State state) {
+    for (var r = 0; r < size; r++) {
+      for (var c = 0; c < size; c++) {
+        if (state.squares[x(symmetry, r, c)][y(symmetry, r, c)] != state.squares[r][c]) return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Position action(int symmetry, Position action) {
+    return new Position(x(symmetry, action.x, action.y), y(symmetry, action.x, action.y));
+  }
+
+  private int x(int symmetry, int x, int y) {
+    var t = (symmetry & 4) != 0 ? y : x;
+    return (symmetry & 1) != 0 ? size - 1 - t : t;
+  }
+
+  private int y(int symmetry, int x, int y) {
+    var t = (symmetry & 4) != 0 ? x : y;
+    return (symmetry & 2) != 0 ? size - 1 - t : t;
+  }
+
+}
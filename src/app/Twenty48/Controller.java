@@ -2,6 +2,7 @@ package app.Twenty48;
 
 import java.util.ArrayList;
 import java.util.function.IntConsumer;
+import java.util.random.RandomGenerator;
 
 class Controller {
 
@@ -15,18 +16,18 @@ class Controller {
     return true;
   }
 
-  static int[][] spawnNumber(int[][] grid) { // new grid[x][y]
+  static int[][] spawnNumber(int[][] grid, RandomGenerator random) { // new grid[x][y]
     var newGrid = copyOf(grid);
-    var number = generateNumber();
-    var coordinates = locateSpawnCoordinates(newGrid);
+    var number = generateNumber(random);
+    var coordinates = locateSpawnCoordinates(newGrid, random);
     return updateGrid(newGrid, coordinates, number);
   }
 
-  static int generateNumber() {
-    return Math.random() > 0.10 ? 2 : 4;
+  static int generateNumber(RandomGenerator random) {
+    return random.nextDouble() > 0.10 ? 2 : 4;
   }
 
-  static int[] locateSpawnCoordinates(int[][] grid) {
+  static int[] locateSpawnCoordinates(int[][] grid, RandomGenerator random) {
     var emptyCells = new ArrayList<int[]>();
     for (var x = 0; x < grid.length; x++) {
       var row = grid[x];
@@ -34,7 +35,7 @@ class Controller {
         if (row[y] == 0) emptyCells.add(new int[]{x,y});
       }
     }
-    return emptyCells.isEmpty() ? null : emptyCells.get((int)(Math.random() * (emptyCells.size() - 1)));
+    return emptyCells.isEmpty() ? null : emptyCells.get(random.nextInt(emptyCells.size()));
   }
 
   static int[][] updateGrid(int[][] grid, int[] at, int value) {
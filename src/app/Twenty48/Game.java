@@ -7,6 +7,8 @@ import java.io.UncheckedIOException;
 
 import java.util.Arrays;
 
+import lib.mcts.RandomSource;
+
 import static app.Twenty48.Controller.*;
 
 class Game {
@@ -16,6 +18,8 @@ class Game {
 
   static int[] gameScore = { 2 };
 
+  static RandomSource random = RandomSource.create();
+
   public static void main(String...args) {
 
     var grid = spawnNumber(new int[][] {
@@ -23,7 +27,7 @@ class Game {
       { 0, 0, 0, 0 },
       { 0, 0, 0, 0 },
       { 0, 0, 0, 0 }
-    });
+    }, random);
 
     mergeListener = toMatch -> {
       if (toMatch > gameScore[0]) {
@@ -39,7 +43,7 @@ class Game {
     if (isGridSolved(grid)) return positiveGameOverMessage;
     else if (isGridFull(grid)) return negativeGameOverMessage;
 
-    grid = spawnNumber(grid);
+    grid = spawnNumber(grid, random);
     display(grid, gameScore[0]);
 
     return run2048(manipulateGrid(grid, waitForValidInput()));
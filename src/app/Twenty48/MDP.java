@@ -1,18 +1,34 @@
 package app.Twenty48;
 
 import java.util.Set;
+import java.util.EnumSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.LinkedHashMap;
+
+import lib.mcts.ChanceMDP;
+import lib.mcts.RandomSource;
 
 import static app.Twenty48.Controller.*;
 
-class MDP implements lib.mcts.MDP<State, Action> { // (val initialGameState: Game2048State ) : MDP<Game2048State, Game2048Action>() {
+class MDP implements ChanceMDP<State, Action, State> { // (val initialGameState: Game2048State ) : MDP<Game2048State, Game2048Action>() {
 
   private final State initialGameState;
+  private final RandomSource random;
 
   MDP(State initialGameState) {
+    this(initialGameState, RandomSource.create());
+  }
+
+  MDP(State initialGameState, RandomSource random) {
     assert initialGameState != null : "initialGameState";
     this.initialGameState = initialGameState;
+    assert random != null : "random";
+    this.random = random;
   }
 
+  static final Set<Action> allActions = Collections.unmodifiableSet(EnumSet.allOf(Action.class));
+
   @Override
   public State initialState() {
     return initialGameState;
@@ -26,19 +42,80 @@ class MDP implements lib.mcts.MDP<State, Action> { // (val initialGameState: Gam
 
   @Override
   public State transition(State state, Action action) {
-    return state.makeMove(action, state.gameGrid());
+    return transition(state, action, random);
+  }
+
+  /**
+   * The grid after the player's move, before a number is spawned.
+   */
+  @Override
+  public State afterstate(State state, Action action) {
+    return new State(new Position(manipulateGrid(copyOf(state.gameGrid()), action)));
+  }
+
+  @Override
+  public State outcome(State afterstate, RandomSource random) {
+    return new State(new Position(spawnNumber(afterstate.gameGrid(), random)));
+  }
+
+  /**
+   * A 2 or a 4 in any empty cell, each cell being equally likely.
+   */
+  @Override
+  public Map<State, Double> outcomes(State afterstate) {
+    var grid = afterstate.gameGrid();
+    var emptyCells = 0;
+    for (var row:grid) for (var col:row) if (col == 0) emptyCells++;
+
+    var outcomes = new LinkedHashMap<State, Double>();
+    for (var x = 0; x < grid.length; x++) {
+      for (var y = 0; y < grid[x].length; y++) {
+        if (grid[x][y] == 0) {
+          outcomes.put(spawn(grid, x, y, 2), 0.90 / emptyCells);
+          outcomes.put(spawn(grid, x, y, 4), 0.10 / emptyCells);
+        }
+      }
+    }
+    return outcomes;
+  }
+
+  static State spawn(int[][] grid, int x, int y, int number) {
+    return new State(new Position(updateGrid(copyOf(grid), new int[]{x,y}, number)));
   }
 
   @Override
   public Set<Action> actions(State state) {
-    return Set.of(Action.values());
+    return allActions;
+  }
+
+  /**
+   * A tile heuristic on the scale of [reward]: the exponent of the largest tile plus the fraction of empty cells,
+   * which estimates how much room there is left to build on it.
+   */
+  double evaluate(State state) {
+    var grid = state.gameGrid();
+    var cells = 0;
+    var empty = 0;
+    for (var row:grid) {
+      for (var col:row) {
+        cells++;
+        if (col == 0) empty++;
+      }
+    }
+    return reward(null, null, state) + (double)empty / cells;
   }
 
   @Override
   public boolean isTerminal(State state) {
-    var isSolvedGrid = isGridSolved(state.gameGrid());
-    var isFullGrid = isGridFull(state.gameGrid());
-    return isSolvedGrid || isFullGrid;
+    // isGridSolved(grid) || isGridFull(grid), in a single scan
+    var isFullGrid = true;
+    for (var row:state.gameGrid()) {
+      for (var col:row) {
+        if (col == 2048) return true;
+        if (col == 0) isFullGrid = false;
+      }
+    }
+    return isFullGrid;
   }
 
 }
@@ -20,6 +20,9 @@ class Main {
     var mdp = new MDP(initialGameState);
 
     var solver = new ExtendedStatelessSolver<>(mdp, 999, 1.4, 0.9, true);
+    solver.leafEvaluator(mdp::evaluate);
+    solver.rolloutDepthLimit(20);
+    solver.symmetry(new Symmetries(initialGameState));
 
     solver.runTreeSearch(999);
     solver.displayTree(3);
@@ -1,5 +1,8 @@
 package app.Twenty48;
 
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
 import static app.Twenty48.Controller.*;
 
 class State {
@@ -21,11 +24,21 @@ class State {
     return max;
   }
 
-  State makeMove(Action action, int[][] gameGrid) { // : Array<Array<Int>> = this.gameGrid): Game2048State {
-    var newPosition = new Position(spawnNumber(manipulateGrid(gameGrid, action)));
+  State makeMove(Action action, int[][] gameGrid, RandomGenerator random) { // : Array<Array<Int>> = this.gameGrid): Game2048State {
+    var newPosition = new Position(spawnNumber(manipulateGrid(copyOf(gameGrid), action), random));
     return new State(newPosition);
   }
 
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof State s && Arrays.deepEquals(gameGrid(), s.gameGrid());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.deepHashCode(gameGrid());
+  }
+
   @Override
   public String toString() {
     return gamePosition.toString();
@@ -0,0 +1,77 @@
+package app.Twenty48;
+
+import lib.mcts.Symmetry;
+
+/**
+ * The rotations and reflections of the grid, with the moves turned along.
+ *
+ * Symmetry i transposes the grid if bit 2 is set, and then reverses the rows if bit 0 is set and the columns if bit 1
+ * is set. The transpositions only apply to square grids, so a grid that is not square has four symmetries.
+ */
+class Symmetries implements Symmetry<State, Action> {
+
+  private final int rows;
+  private final int columns;
+
+  Symmetries(State state) {
+    var grid = state.gameGrid();
+    this.rows = grid.length;
+    this.columns = grid[0].length;
+  }
+
+  @Override
+  public int count() {
+    return rows == columns ? 8 : 4;
+  }
+
+  @Override
+  public State state(int symmetry, State state) {
+    var grid = state.gameGrid();
+    var image = new int[rows][columns];
+    for (var x = 0; x < rows; x++) {
+      for (var y = 0; y < columns; y++) {
+        image[x(symmetry, x, y)][y(symmetry, x, y)] = grid[x][y];
+      }
+    }
+    return new State(new Position(image));
+  }
+
+  @Override
+  public boolean isInvariant(int symmetry, State state) {
+    var grid = state.gameGrid();
+    for (var x = 0; x < rows; x++) {
+      for (var y = 0; y < columns; y++) {
+        if (grid[x(symmetry, x, y)][y(symmetry, x, y)] != grid[x][y]) return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Turns the direction of the move as the grid is turned: up and down move along the rows, left and right along the
+   * columns.
+   */
+  @Override
+  public Action action(int symmetry, Action action) {
+    var vertical = action == Action.up || action == Action.down;
+    var forward = action == Action.down || action == Action.right;
+    if ((symmetry & 4) != 0) {
+      vertical = !vertical;
+    }
+    if ((symmetry & (vertical ? 1 : 2)) != 0) {
+      forward = !forward;
+    }
+    return vertical ? (forward ? Action.down : Action.up) : (forward ? Action.right : Action.left);
+  }
+
+  private int x(int symmetry, int x, int y) {
+    var t = (symmetry & 4) != 0 ? y : x;
+    return (symmetry & 1) != 0 ? rows - 1 - t : t;
+  }
+
+  private int y(int symmetry, int x, int y) {
+    var t = (symmetry & 4) != 0 ? x : y;
+    return (symmetry & 2) != 0 ? columns - 1 - t : t;
+  }
+
+}
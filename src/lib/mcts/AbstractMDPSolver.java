@@ -0,0 +1,684 @@
+package lib.mcts;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.lang.Math.*;
+
+/**
+ * The common base of solvers that search a [MDP] directly.
+ *
+ * This type holds the MDP and the simulation parameters, and implements the simulation and backpropagation steps that
+ * are shared by the stateless and stateful solvers. Subclasses decide how nodes are created and how the state at a
+ * node is obtained.
+ *
+ * The optional features are strategies owned by the solver, whose settings it exposes: the [Rollout] runs simulations,
+ * a [Trajectory] records the actions of an iteration for [Rave] and [Mast] and backs up their statistics, and
+ * [SequentialHalving] allocates the budget among the root actions.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ * @param NodeType the type that represents the nodes of the tree that represents the MDP.
+ *
+ * The constructor takes in a [MDP], a depth limit for simulations, a exploration constant, a reward discount factor
+ * and a verbosity flag.
+ */
+public abstract class AbstractMDPSolver<StateType, ActionType, NodeType extends AbstractNode<ActionType, NodeType>> extends AbstractSolver<ActionType, NodeType> {
+
+  @SuppressWarnings("unchecked")
+  public AbstractMDPSolver(MDP<StateType, ActionType> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
+    super(verbose, explorationConstant);
+    assert mdp != null : "mdp";
+    this.mdp = mdp;
+    this.simulationDepthLimit = simulationDepthLimit;
+    this.rewardDiscountFactor = rewardDiscountFactor;
+    this.adversarialMDP = mdp.extension(AdversarialMDP.class);
+    this.adversarial = adversarialMDP != null;
+    this.semiMDP = mdp.extension(SemiMDP.class);
+    this.mutableMDP = mdp.extension(MutableMDP.class);
+  }
+
+  protected final MDP<StateType, ActionType> mdp;
+  protected final int simulationDepthLimit;
+  protected final double rewardDiscountFactor;
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+  public final int simulationDepthLimit() { return simulationDepthLimit; }
+  public final double rewardDiscountFactor() { return rewardDiscountFactor; }
+
+  private final AdversarialMDP<StateType, ActionType> adversarialMDP;
+  private final SemiMDP<StateType, ActionType> semiMDP;
+  private final MutableMDP<StateType, ActionType> mutableMDP;
+  private boolean adversarial;
+
+  // The strategies of the optional features, owned by the solver; see [Rollout], [Trajectory] and [SequentialHalving]
+  private final Rollout<StateType, ActionType> rollout = new Rollout<>(this);
+  private Trajectory<ActionType> trajectory;
+  private SequentialHalving<ActionType> sequentialHalving;
+
+  /**
+   * Whether the rewards backed up through each node are attributed to the player who moved into it, so that selection
+   * maximises the value for the player to move. This is on by default for an [AdversarialMDP], and can only be turned on
+   * for one.
+   */
+  public final boolean adversarial() { return adversarial; }
+  public final void adversarial(boolean adversarial) {
+    if (adversarial && adversarialMDP == null) {
+      throw new IllegalStateException("Adversarial mode requires an AdversarialMDP");
+    }
+    this.adversarial = adversarial;
+    refreshTrajectory();
+  }
+
+  /**
+   * The policy that chooses actions during simulation; uniformly random by default.
+   */
+  public final RolloutPolicy<StateType, ActionType> rolloutPolicy() { return rollout.policy; }
+  public final void rolloutPolicy(RolloutPolicy<StateType, ActionType> rolloutPolicy) {
+    assert rolloutPolicy != null : "rolloutPolicy";
+    rollout.policy = rolloutPolicy;
+  }
+
+  private ExpansionPolicy expansionPolicy = ExpansionPolicy.full();
+
+  /**
+   * The policy that decides whether selection stops to expand a node that still has untried actions.
+   */
+  public final ExpansionPolicy expansionPolicy() { return expansionPolicy; }
+  public final void expansionPolicy(ExpansionPolicy expansionPolicy) {
+    assert expansionPolicy != null : "expansionPolicy";
+    this.expansionPolicy = expansionPolicy;
+  }
+
+  private SelectionPolicy<StateType, ActionType> selectionPolicy;
+
+  /**
+   * The policy that scores children during selection, or null to score them by [calculateUCT]. It should be set before
+   * the search starts, so that every node gets the statistics the policy needs.
+   */
+  public final SelectionPolicy<StateType, ActionType> selectionPolicy() { return selectionPolicy; }
+  public final void selectionPolicy(SelectionPolicy<StateType, ActionType> selectionPolicy) { this.selectionPolicy = selectionPolicy; }
+
+  private Rave<ActionType> rave;
+
+  /**
+   * The settings of Rapid Action Value Estimation, or null to search without AMAF statistics.
+   */
+  public final Rave<ActionType> rave() { return rave; }
+  public final void rave(Rave<ActionType> rave) {
+    assert rave == null || mast == null || rave.actionCount() == mast.actionCount() : "rave";
+    this.rave = rave;
+    refreshTrajectory();
+  }
+
+  private Mast<ActionType> mast;
+
+  /**
+   * The settings of the Move-Average Sampling Technique, or null to choose rollout actions by the [rolloutPolicy]. With
+   * [Mast] the rollout policy is not used. Together with [rave] both must give the same codes to the actions.
+   */
+  public final Mast<ActionType> mast() { return mast; }
+  public final void mast(Mast<ActionType> mast) {
+    assert mast == null || rave == null || mast.actionCount() == rave.actionCount() : "mast";
+    this.mast = mast;
+    refreshTrajectory();
+  }
+
+  /**
+   * Replaces the [Trajectory] for the current [rave], [mast] and [adversarial] settings, or drops it without either.
+   */
+  private void refreshTrajectory() {
+    trajectory = rave != null || mast != null ? new Trajectory<>(rave, mast, adversarial) : null;
+  }
+
+  /**
+   * The trajectory of the current iteration, or null without [rave] and [mast].
+   */
+  final Trajectory<ActionType> trajectory() {
+    return trajectory;
+  }
+
+  /**
+   * The MDP as a [MutableMDP], whose rollouts update their states in place, or null.
+   */
+  final MutableMDP<StateType, ActionType> mutableMDP() {
+    return mutableMDP;
+  }
+
+  private Symmetry<StateType, ActionType> symmetry;
+
+  /**
+   * The symmetries of the MDP, or null. With symmetries, the nodes created from now on, and the root if it has not been
+   * expanded yet, search only one of each set of actions that are symmetric in their state, and the [rolloutCache] is
+   * keyed by the canonical forms of states.
+   */
+  public final Symmetry<StateType, ActionType> symmetry() { return symmetry; }
+  public final void symmetry(Symmetry<StateType, ActionType> symmetry) {
+    this.symmetry = symmetry;
+    refreshRoot();
+  }
+
+  /**
+   * Updates the actions of the root for the current [symmetry] if it has not been expanded yet.
+   */
+  protected void refreshRoot() {
+  }
+
+  private ActionPrior<StateType, ActionType> actionPrior;
+  private int priorVisits;
+  private double progressiveBias;
+
+  /**
+   * The prior knowledge about the actions, or null. With a prior the untried actions of a node are expanded in the
+   * order of their priors, best first.
+   */
+  public final ActionPrior<StateType, ActionType> actionPrior() { return actionPrior; }
+  public final void actionPrior(ActionPrior<StateType, ActionType> actionPrior) { this.actionPrior = actionPrior; }
+
+  /**
+   * The number of virtual visits at the value of the [actionPrior] that a new node starts with; 0 by default. Virtual
+   * visits count like real ones, also when choosing the most visited action. Chance nodes are not seeded, since their
+   * visits must add up to those of their outcomes.
+   */
+  public final int priorVisits() { return priorVisits; }
+  public final void priorVisits(int priorVisits) {
+    assert priorVisits >= 0 : "priorVisits";
+    this.priorVisits = priorVisits;
+  }
+
+  /**
+   * The weight of the progressive bias `weight * prior / (n + 1)` that is added to the score of a node with the value
+   * of the [actionPrior] and n visits; 0 by default.
+   */
+  public final double progressiveBias() { return progressiveBias; }
+  public final void progressiveBias(double progressiveBias) { this.progressiveBias = progressiveBias; }
+
+  private ActionType recommendation;
+
+  /**
+   * Whether the budget of a search is allocated among the actions at the root by Sequential Halving rather than by the
+   * selection policy. Every root action is expanded first; the remaining budget is then split into rounds, each of
+   * which samples the surviving actions equally, with UCT or the selection policy below them, and drops the worse half
+   * by mean reward. The surviving action is recommended by [extractOptimalAction]. This targets the simple regret of
+   * the recommendation, which matters for a fixed budget, where UCB at the root minimises cumulative regret.
+   */
+  public final boolean sequentialHalving() { return sequentialHalving != null; }
+  public final void sequentialHalving(boolean sequentialHalving) {
+    this.sequentialHalving = sequentialHalving ? new SequentialHalving<>(this) : null;
+  }
+
+  /**
+   * The evaluator that scores a rollout once it is cut off, or null to score it with [MDP.reward].
+   */
+  public final LeafEvaluator<StateType> leafEvaluator() { return rollout.leafEvaluator; }
+  public final void leafEvaluator(LeafEvaluator<StateType> leafEvaluator) { rollout.leafEvaluator = leafEvaluator; }
+
+  /**
+   * The number of rollout steps after which a rollout is cut off. With a [LeafEvaluator] this may be 0, in which case
+   * the leaf is evaluated without any rollout.
+   */
+  public final int rolloutDepthLimit() { return rollout.depthLimit; }
+  public final void rolloutDepthLimit(int rolloutDepthLimit) {
+    assert rolloutDepthLimit >= 0 : "rolloutDepthLimit";
+    rollout.depthLimit = rolloutDepthLimit;
+  }
+
+  /**
+   * The accumulated discount below which a rollout is cut off; a rollout stops once `discount^depth < epsilon`.
+   */
+  public final double rolloutDiscountEpsilon() { return rollout.discountEpsilon; }
+  public final void rolloutDiscountEpsilon(double rolloutDiscountEpsilon) {
+    assert rolloutDiscountEpsilon >= 0 : "rolloutDiscountEpsilon";
+    rollout.discountEpsilon = rolloutDiscountEpsilon;
+  }
+
+  private int treeDepthLimit = Integer.MAX_VALUE;
+
+  /**
+   * The depth at which the tree stops growing; nodes at this depth are leaves, which are valued only by rollouts or the
+   * [leafEvaluator]. Unlimited by default. Unlike [simulationDepthLimit], which bounds rollouts, this bounds the memory
+   * of the tree for MDPs that never terminate, where the most visited path would otherwise grow into a long chain of
+   * nodes whose discounted values hardly matter.
+   */
+  public final int treeDepthLimit() { return treeDepthLimit; }
+  public final void treeDepthLimit(int treeDepthLimit) {
+    assert treeDepthLimit > 0 : "treeDepthLimit";
+    this.treeDepthLimit = treeDepthLimit;
+  }
+
+  /**
+   * Sets the [treeDepthLimit] to the smallest depth at which the discount of rewards falls below the given precision,
+   * i.e. `rewardDiscountFactor^depth < precision`; without discounting the depth is unlimited.
+   */
+  public final void automaticTreeDepthLimit(double precision) {
+    assert precision > 0 && precision < 1 : "precision";
+    if (rewardDiscountFactor >= 1) {
+      treeDepthLimit = Integer.MAX_VALUE;
+    } else if (rewardDiscountFactor <= 0) {
+      treeDepthLimit = 1;
+    } else {
+      treeDepthLimit = (int) min(Integer.MAX_VALUE, floor(log(precision) / log(rewardDiscountFactor)) + 1);
+    }
+  }
+
+  /**
+   * Whether the node is at the [treeDepthLimit], so that it is not expanded.
+   */
+  protected final boolean atTreeDepthLimit(NodeType node) {
+    return node.depth() >= treeDepthLimit;
+  }
+
+  /**
+   * The cache used to answer simulations from states that have been simulated before, or null to always roll out.
+   */
+  public final RolloutCache<StateType> rolloutCache() { return rollout.cache; }
+  public final void rolloutCache(RolloutCache<StateType> rolloutCache) {
+    if (rolloutCache != null && hasScratchState()) {
+      throw new IllegalStateException("A rollout cache cannot be keyed by a scratch state that is updated in place");
+    }
+    rollout.cache = rolloutCache;
+  }
+
+  /**
+   * Whether the states given to [estimate] are a scratch state that the solver updates in place, and so cannot be
+   * kept as keys of the [rolloutCache].
+   */
+  protected boolean hasScratchState() {
+    return false;
+  }
+
+  /**
+   * Returns the state at the given node.
+   */
+  protected abstract StateType state(NodeType node);
+
+  /**
+   * Determines whether the given node represents a terminal state.
+   */
+  protected abstract boolean isTerminal(NodeType node);
+
+  // SOLVER
+
+  @Override
+  public void runTreeSearch(int iterations) {
+    recommendation = null;
+    if (sequentialHalving != null) {
+      recommendation = sequentialHalving.run(iterations, 0);
+    } else {
+      super.runTreeSearch(iterations);
+    }
+  }
+
+  @Override
+  public void runTreeSearch(Duration budget) {
+    recommendation = null;
+    if (sequentialHalving != null) {
+      assert budget != null : "budget";
+      recommendation = sequentialHalving.run(-1, System.nanoTime() + budget.toNanos());
+    } else {
+      super.runTreeSearch(budget);
+    }
+  }
+
+  /**
+   * Returns the action recommended by the last search with [sequentialHalving], if any, otherwise the action of the
+   * most visited child of the root.
+   */
+  @Override
+  public ActionType extractOptimalAction() {
+    return recommendation != null ? recommendation : super.extractOptimalAction();
+  }
+
+  @Override
+  public double simulate(NodeType node) {
+    assert node != null : "node";
+    traceln("Simulation:");
+
+    // If state is terminal, the reward is defined by MDP
+    if (isTerminal(node)) {
+      traceln("Terminal state reached");
+      var parent = node.parent();
+      return mdp.reward(parent != null ? state(parent) : null, node.inducingAction(), state(node));
+    }
+
+    return estimate(state(node));
+  }
+
+  /**
+   * Returns the value of a non-terminal state: the recorded mean from the [rolloutCache] if it has one, otherwise the
+   * reward of a new rollout; see [Rollout].
+   */
+  protected final double estimate(StateType state) {
+    return rollout.estimate(state);
+  }
+
+  private Object[] undoActions = new Object[16];
+  private long[] undoTokens = new long[16];
+  private int undoDepth;
+
+  /**
+   * Applies the action to the state in place and pushes its undo token on the undo stack.
+   */
+  protected final void apply(MutableMDP<StateType, ActionType> mutable, StateType state, ActionType action) {
+    var token = mutable.apply(state, action, random());
+    if (undoDepth == undoTokens.length) {
+      undoActions = Arrays.copyOf(undoActions, undoDepth * 2);
+      undoTokens = Arrays.copyOf(undoTokens, undoDepth * 2);
+    }
+    undoActions[undoDepth] = action;
+    undoTokens[undoDepth] = token;
+    undoDepth++;
+  }
+
+  /**
+   * Undoes the actions on the undo stack, most recent first, until the stack is back at the given depth.
+   */
+  @SuppressWarnings("unchecked")
+  protected final void undo(MutableMDP<StateType, ActionType> mutable, StateType state, int depth) {
+    while (undoDepth > depth) {
+      undoDepth--;
+      mutable.undo(state, (ActionType) undoActions[undoDepth], undoTokens[undoDepth]);
+      undoActions[undoDepth] = null;
+    }
+  }
+
+  /**
+   * The current depth of the undo stack.
+   */
+  protected final int undoDepth() {
+    return undoDepth;
+  }
+
+  @Override
+  public void backPropagate(NodeType node, double reward) {
+    assert node != null : "node";
+    var currentStateNode = node;
+    var currentReward = reward;
+    var trajectory = this.trajectory;
+    var rolloutLength = trajectory != null ? trajectory.length() : 0;
+
+    for (;;) {
+      update(currentStateNode, perspective(currentStateNode, currentReward));
+      if (trajectory != null) {
+        trajectory.credit(currentStateNode, currentReward);
+      }
+      var parent = currentStateNode.parent();
+      if (parent == null) break;
+      if (trajectory != null) {
+        trajectory.record(currentStateNode.inducingAction(), parent.player());
+      }
+      currentReward *= discount(currentStateNode);
+      currentStateNode = parent;
+    }
+    if (trajectory != null) {
+      trajectory.finish(rolloutLength, reward);
+    }
+  }
+
+  /**
+   * Returns the reward, scored from the point of view of player 0, as seen by the player who moved into the given node.
+   */
+  protected final double perspective(NodeType node, double reward) {
+    var parent = node.parent();
+    return adversarial && parent != null && parent.player() != 0 ? -reward : reward;
+  }
+
+  /**
+   * Returns the factor by which the value of the given node is discounted to its parent: the [rewardDiscountFactor]
+   * for each time step of the transition into it, as recorded on the node by [annotate].
+   */
+  protected double discount(NodeType node) {
+    return semiMDP != null ? pow(rewardDiscountFactor, node.duration()) : rewardDiscountFactor;
+  }
+
+  /**
+   * Returns the factor by which the value of the given state is discounted to the state before it: the
+   * [rewardDiscountFactor] raised to the duration of the transition for a [SemiMDP], otherwise the factor itself.
+   */
+  protected final double discount(StateType state) {
+    return semiMDP != null ? pow(rewardDiscountFactor, semiMDP.duration(state)) : rewardDiscountFactor;
+  }
+
+  /**
+   * Records on a node what the search needs of its state: the player to move and, for a [SemiMDP], the duration of the
+   * transition into it, so that backing up through the node does not need its state again.
+   */
+  protected final void annotate(NodeType node, StateType state) {
+    node.player(playerToMove(state));
+    if (semiMDP != null) {
+      node.duration(semiMDP.duration(state));
+    }
+  }
+
+  /**
+   * Returns the player to move in the given state, or 0 if the MDP is not an [AdversarialMDP].
+   */
+  protected final int playerToMove(StateType state) {
+    return adversarialMDP != null ? adversarialMDP.playerToMove(state) : 0;
+  }
+
+  /**
+   * Updates the statistics of a single node on the backpropagation path with the reward as seen from that node.
+   */
+  protected void update(NodeType node, double reward) {
+    node.visit();
+    node.maxReward(max(node.maxReward(), reward));
+    node.addReward(reward);
+    updateStatistics(node.statistics(), reward);
+  }
+
+  /**
+   * Updates statistics created by the [selectionPolicy] with a reward, if there are any.
+   */
+  protected final void updateStatistics(Object statistics, double reward) {
+    if (statistics != null && selectionPolicy != null) {
+      selectionPolicy.update(statistics, reward);
+    }
+  }
+
+  // Sequential Halving
+
+  /**
+   * The action recommended by the last search with [sequentialHalving], or null.
+   */
+  protected final ActionType recommendation() {
+    return recommendation;
+  }
+
+  /**
+   * The number of actions that can be expanded at the root, without those merged by the [symmetry].
+   */
+  protected int rootActionCount() {
+    return isTerminal(root()) ? 0 : root().validActions().size();
+  }
+
+  /**
+   * The actions at the root that have been expanded.
+   */
+  protected List<ActionType> rootActions() {
+    var actions = new ArrayList<ActionType>();
+    for (var child:root().children()) actions.add(child.inducingAction());
+    return actions;
+  }
+
+  /**
+   * The mean reward of the given expanded root action.
+   */
+  protected double rootActionMean(ActionType action) {
+    var child = rootChild(action);
+    return child.reward() / child.n();
+  }
+
+  /**
+   * Runs a single iteration of MCTS whose path starts with the given expanded root action.
+   */
+  protected void runRootActionIteration(ActionType rootAction) {
+    runTreeSearchIteration(rootChild(rootAction));
+  }
+
+  private NodeType rootChild(ActionType action) {
+    for (var child:root().children()) {
+      if (child.inducingAction().equals(action)) return child;
+    }
+    throw new IllegalStateException("Root action was not expanded");
+  }
+
+  // Expansion
+
+  /**
+   * Returns the given actions of the state without the actions that are symmetric to an earlier one under a
+   * [symmetry] that leaves the state unchanged, or the actions as given if there is none.
+   */
+  protected final Set<ActionType> distinctActions(StateType state, Set<ActionType> actions) {
+    if (symmetry == null || actions.size() < 2) {
+      return actions;
+    }
+    var invariant = new int[symmetry.count()];
+    var count = 0;
+    for (var i = 1; i < invariant.length; i++) {
+      if (symmetry.isInvariant(i, state)) invariant[count++] = i;
+    }
+    if (count == 0) {
+      return actions;
+    }
+    var distinct = new LinkedHashSet<ActionType>();
+    next: for (var action:actions) {
+      for (var i = 0; i < count; i++) {
+        if (distinct.contains(symmetry.action(invariant[i], action))) continue next;
+      }
+      distinct.add(action);
+    }
+    return distinct;
+  }
+
+  /**
+   * Returns the untried action with the highest value of the [actionPrior], or any untried action without one.
+   */
+  protected final ActionType untriedAction(StateType state, Stream<ActionType> untried) {
+    var action = actionPrior != null ? untried.max((a, b) -> Double.compare(actionPrior.prior(state, a), actionPrior.prior(state, b))) : untried.findAny();
+    return action.orElseThrow(() -> new IllegalStateException("No unexplored actions available"));
+  }
+
+  /**
+   * Initializes a new node reached from the given state by the given action with the statistics of the
+   * [selectionPolicy] and with the value of the [actionPrior] and its virtual visits.
+   */
+  protected final void initialize(NodeType node, StateType state, ActionType action) {
+    node.statistics(statistics(state, action));
+    if (actionPrior != null) {
+      var prior = actionPrior.prior(state, action);
+      node.prior(prior);
+      if (priorVisits > 0) {
+        node.n(priorVisits);
+        node.reward(prior * priorVisits);
+      }
+    }
+  }
+
+  /**
+   * Whether the node has not been visited yet apart from the virtual visits of the [actionPrior].
+   */
+  protected final boolean isUnvisited(NodeType node) {
+    return node.n() <= (actionPrior != null ? priorVisits : 0);
+  }
+
+  /**
+   * Returns the value of the [actionPrior] for the action in the state, or 0 if there is none.
+   */
+  protected final double prior(StateType state, ActionType action) {
+    return actionPrior != null ? actionPrior.prior(state, action) : 0;
+  }
+
+  // Selection
+
+  /**
+   * Returns the statistics the [selectionPolicy] keeps for a new node reached from the given state by the given
+   * action, or null.
+   */
+  protected final Object statistics(StateType state, ActionType action) {
+    return selectionPolicy != null ? selectionPolicy.statistics(state, action) : null;
+  }
+
+  /**
+   * Scores a child with the given visits, rewards, statistics and prior by the [selectionPolicy], or by [calculateUCT]
+   * if there is none, plus the [progressiveBias] for the prior.
+   */
+  protected final double score(double parentN, double n, double reward, Object statistics, double prior) {
+    var score = selectionPolicy != null
+      ? selectionPolicy.score(parentN, n, reward, statistics, prior, explorationConstant(), random())
+      : calculateUCT(parentN, n, reward, explorationConstant());
+    return progressiveBias != 0 ? score + progressiveBias * prior / (n + 1) : score;
+  }
+
+  /**
+   * Scores a node by the [selectionPolicy], or by [calculateUCT] if there is none, from its reward blended with the
+   * AMAF statistics of its parent when searching with [Rave], plus its [progressiveBias]. Nodes that are unvisited
+   * apart from their virtual visits, by [isUnvisited], come first.
+   */
+  protected final double score(NodeType node) {
+    if (isUnvisited(node)) {
+      return Double.POSITIVE_INFINITY;
+    }
+    var parent = node.parent();
+    if (parent == null) {
+      return score(node.n(), node.n(), node.reward(), node.statistics(), node.prior());
+    }
+    return score(parent.n(), node.n(), blendedReward(node, amafReward(parent, node.inducingAction(), node.n(), node.reward())), node.statistics(), node.prior());
+  }
+
+  /**
+   * Returns the reward sum by which a node with the given reward sum is scored in selection; subclasses may blend in
+   * other estimates of its value.
+   */
+  protected double blendedReward(NodeType node, double reward) {
+    return reward;
+  }
+
+  /**
+   * Returns the reward sum of a child of the given node reached by the given action, blended with the AMAF statistics
+   * of the node when searching with [Rave].
+   */
+  protected final double amafReward(NodeType node, ActionType action, double n, double reward) {
+    if (rave == null) {
+      return reward;
+    }
+    var table = node.amaf();
+    return table != null ? rave.blend(table, rave.code(action), n, reward) : reward;
+  }
+
+  /**
+   * Returns the child with the highest score, the first one on ties. Each child is scored once, as the scores of a
+   * randomized policy differ from call to call.
+   */
+  protected final NodeType bestChild(Iterable<NodeType> children) {
+    var best = bestChild(children, child -> true);
+    if (best == null) {
+      throw new IllegalStateException("There were no children for explored node");
+    }
+    return best;
+  }
+
+  /**
+   * Returns the eligible child with the highest score, the first one on ties, or null if no child is eligible.
+   */
+  protected final NodeType bestChild(Iterable<NodeType> children, Predicate<? super NodeType> eligible) {
+    NodeType best = null;
+    var bestScore = Double.NEGATIVE_INFINITY;
+    for (var child:children) {
+      if (!eligible.test(child)) continue;
+      var score = score(child);
+      if (best == null || score > bestScore) {
+        best = child;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+}
@@ -15,9 +15,14 @@ public abstract class AbstractNode<ActionType, SelfType extends Node<ActionType,
   private final ActionType inducingAction;
 
   private final int depth;
-  private int n;
+  private long n;
   private double reward;
+  // The low-order part of the reward sum lost to rounding
+  private double rewardError;
   private double maxReward;
+  // The statistics, prior, AMAF statistics and duration of the node, as far as its search keeps any; see [NodeExtras]
+  private Object extras;
+  private byte player;
 
   @Override
   public final SelfType parent() { return parent; }
@@ -29,17 +34,68 @@ public abstract class AbstractNode<ActionType, SelfType extends Node<ActionType,
   public final int depth() { return depth; }
 
   @Override
-  public final int n() { return n; }
-  public final void n(int n) { this.n = n; }
+  public final long n() { return n; }
+  public final void n(long n) { this.n = n; }
+
+  /**
+   * Adds a visit to the node; throws an [ArithmeticException] rather than wrap around once the count is
+   * `Long.MAX_VALUE`.
+   */
+  public final void visit() {
+    n = Math.incrementExact(n);
+  }
 
   @Override
-  public final double reward() { return reward; }
-  public final void reward(double reward) { this.reward = reward; }
+  public final double reward() { return reward + rewardError; }
+  public final void reward(double reward) {
+    this.reward = reward;
+    this.rewardError = 0;
+  }
+
+  /**
+   * Adds a reward to the reward sum by compensated (Kahan-Babuska) summation, so that the sum stays accurate when it
+   * grows large over billions of visits.
+   */
+  public final void addReward(double reward) {
+    var sum = this.reward + reward;
+    rewardError += Math.abs(this.reward) >= Math.abs(reward) ? (this.reward - sum) + reward : (reward - sum) + this.reward;
+    this.reward = sum;
+  }
 
   @Override
   public final double maxReward() { return maxReward; }
   public final void maxReward(double maxReward) { this.maxReward = maxReward; }
 
+  /**
+   * The statistics kept for the node by a [SelectionPolicy], or null.
+   */
+  public final Object statistics() { return NodeExtras.statistics(extras); }
+  public final void statistics(Object statistics) { this.extras = NodeExtras.statistics(extras, statistics); }
+
+  /**
+   * The value of the action that led to the node given by an [ActionPrior], otherwise 0.
+   */
+  public final double prior() { return NodeExtras.prior(extras); }
+  public final void prior(double prior) { this.extras = NodeExtras.prior(extras, prior); }
+
+  /**
+   * The player to move at the node in an [AdversarialMDP], otherwise 0.
+   */
+  public final int player() { return player; }
+  public final void player(int player) { this.player = (byte) player; }
+
+  /**
+   * The AMAF statistics of the node when searching with [Rave], or null.
+   */
+  public final double[] amaf() { return NodeExtras.amaf(extras); }
+  public final void amaf(double[] amaf) { this.extras = NodeExtras.amaf(extras, amaf); }
+
+  /**
+   * The number of time steps taken by the transition into the node in a [SemiMDP], otherwise 1.
+   */
+  public final int duration() { return NodeExtras.duration(extras); }
+  public final void duration(int duration) { this.extras = NodeExtras.duration(extras, duration); }
+
   public abstract Collection<SelfType> children(ActionType action);
   public abstract Set<ActionType> validActions();
 
@@ -1,5 +1,7 @@
 package lib.mcts;
 
+import java.time.Duration;
+
 import static java.lang.Math.*;
 
 public abstract class AbstractSolver<ActionType, NodeType extends Node<ActionType, NodeType>> implements Solver<ActionType,NodeType> {
@@ -15,30 +17,61 @@ public abstract class AbstractSolver<ActionType, NodeType extends Node<ActionTyp
   protected final boolean verbose() { return verbose; }
   protected final double explorationConstant() { return explorationConstant; }
 
+  private RandomSource random = RandomSource.create();
+
+  /**
+   * The source of randomness used by this solver and handed to its policies and the MDP.
+   */
+  public final RandomSource random() { return random; }
+  public final void random(RandomSource random) {
+    assert random != null : "random";
+    this.random = random;
+  }
+
   public abstract void root(NodeType root);
 
   // SOLVER
 
   @Override
   public void runTreeSearch(int iterations) {
-    for (var i = 0; i < iterations; i++) {
-      if (verbose) {
-        traceln("");
-        traceln("New iteration " + i);
-        traceln("=============");
-      }
+    for (var i = 0; i < iterations && !isSearchComplete(); i++) {
+      traceIteration(i);
+      runTreeSearchIteration();
+    }
+  }
+
+  @Override
+  public void runTreeSearch(Duration budget) {
+    assert budget != null : "budget";
+    var deadline = System.nanoTime() + budget.toNanos();
+    for (var i = 0; System.nanoTime() - deadline < 0 && !isSearchComplete(); i++) {
+      traceIteration(i);
       runTreeSearchIteration();
     }
   }
 
+  /**
+   * Whether further iterations cannot change the result of the search, in which case [runTreeSearch] returns early.
+   */
+  protected boolean isSearchComplete() {
+    return false;
+  }
+
   /**
    * The default implementation runs [select], [expand], [simulate], [backpropagate] in sequence.
    * This can be overridden to improve performance for specific problem domains.
    */
   @Override
   public void runTreeSearchIteration() {
+    runTreeSearchIteration(root());
+  }
+
+  /**
+   * Runs a single iteration of MCTS whose selection starts at the given node rather than at the root.
+   */
+  protected void runTreeSearchIteration(NodeType start) {
     // Selection
-    var best = select(root());
+    var best = select(start);
 
     if (verbose) {
       traceln("Selected:");
@@ -98,11 +131,19 @@ public abstract class AbstractSolver<ActionType, NodeType extends Node<ActionTyp
   }
 
   protected final int compareN(NodeType a, NodeType b) {
-    return a.n() - b.n();
+    return Long.compare(a.n(), b.n());
   }
 
   // Debug and Diagnostics
 
+  protected final void traceIteration(long i) {
+    if (verbose) {
+      traceln("");
+      traceln("New iteration " + i);
+      traceln("=============");
+    }
+  }
+
   /**
    * Prints the string with a new line if verbose output is enabled.
    */
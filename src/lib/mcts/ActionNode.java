@@ -7,7 +7,8 @@ import java.util.Collection;
 import static java.util.stream.Collectors.*;
 
 /**
- * A representation of nodes used by the stateless [GenericSolver] to solve a Markov Decision Process (MDP).
+ * A representation of nodes used by the stateless [GenericSolver] and the [HybridSolver] to solve a Markov Decision
+ * Process (MDP).
  *
  * This type contains several convenience properties for implementing a stateless MDP solver.
  *
@@ -26,6 +27,7 @@ public final class ActionNode<StateType, ActionType> extends AbstractNode<Action
 
   private StateType state;
   private Set<ActionType> validActions;
+  private boolean isTerminal;
 
   /**
    * The state at this node. This is only available if a simulation has run.
@@ -41,6 +43,23 @@ public final class ActionNode<StateType, ActionType> extends AbstractNode<Action
     this.state = state;
   }
 
+  /**
+   * Whether the state at this node is currently available.
+   */
+  public final boolean hasState() {
+    return state != null;
+  }
+
+  /**
+   * Whether the state at this node is terminal. This is only meaningful if a simulation has run.
+   */
+  public final boolean isTerminal() {
+    return isTerminal;
+  }
+  public final void isTerminal(boolean isTerminal) {
+    this.isTerminal = isTerminal;
+  }
+
   /**
    * A list of actions that can be taken from this node. This is only available if a simulation has run.
    */
@@ -0,0 +1,22 @@
+package lib.mcts;
+
+/**
+ * Prior knowledge about the value of the actions of a [MDP], such as a static ranking of moves.
+ *
+ * The solvers ask for the prior of an action when they create the node for it. They expand the untried actions of a
+ * node in the order of their priors, best first, and may seed the new node with virtual visits at the prior value, or
+ * add a progressive bias to its score that fades as the node is visited.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+@FunctionalInterface
+public interface ActionPrior<StateType, ActionType> {
+
+  /**
+   * The prior value of taking the action in the state, as a reward for the player who takes it on the same scale as
+   * the rewards of the MDP.
+   */
+  double prior(StateType state, ActionType action);
+
+}
@@ -0,0 +1,21 @@
+package lib.mcts;
+
+/**
+ * A [MDP] for two-player zero-sum games.
+ *
+ * The rewards of the MDP are scored from the point of view of player 0, and player 1 gets their negation. Solvers in
+ * adversarial mode attribute the rewards backed up through each node to the player who moved into it, so that at every
+ * node selection maximises the value for the player to move there, as in negamax.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface AdversarialMDP<StateType, ActionType> extends MDP<StateType, ActionType> {
+
+  /**
+   * The player to move in the given state: 0 for the player from whose point of view [MDP.reward] scores states, 1 for
+   * the opponent. The value for a terminal state is not used.
+   */
+  int playerToMove(StateType state);
+
+}
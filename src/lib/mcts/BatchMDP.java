@@ -0,0 +1,23 @@
+package lib.mcts;
+
+import java.util.List;
+
+/**
+ * A [MDP] that takes the transitions for several actions of a state at once, sharing the work they have in common.
+ *
+ * Solvers that expand all the children of a node in one step, such as a [StatefulSolver] with bulk expansion, use
+ * [transitionAll] instead of taking each transition on its own.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface BatchMDP<StateType, ActionType> extends MDP<StateType, ActionType> {
+
+  /**
+   * Returns the new states for the given actions of the given state, in the same order as the actions, as
+   * [MDP.transition] would for each of them. Any randomness must be drawn from the given source. The given state must
+   * not be changed.
+   */
+  List<StateType> transitionAll(StateType state, List<ActionType> actions, RandomSource random);
+
+}
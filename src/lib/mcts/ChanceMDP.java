@@ -0,0 +1,41 @@
+package lib.mcts;
+
+import java.util.Map;
+
+/**
+ * A representation of Markov Decision Processes whose transitions are split into a deterministic and a random part.
+ *
+ * Taking an action in a state first leads to an afterstate, which is fully determined by the state and the action; the
+ * next state is then a random outcome of the afterstate. The [ChanceSolver] uses this split to keep the outcomes of
+ * each action as separate children, rather than freezing one sampled outcome or discarding them.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ * @param AfterstateType the type that represents the afterstates of the MDP; this may be the state type itself.
+ */
+public interface ChanceMDP<StateType, ActionType, AfterstateType> extends MDP<StateType, ActionType> {
+
+  /**
+   * Returns the afterstate of taking the given action in the given state.
+   */
+  AfterstateType afterstate(StateType state, ActionType action);
+
+  /**
+   * Samples an outcome of the given afterstate, drawing the randomness from the given source.
+   */
+  StateType outcome(AfterstateType afterstate, RandomSource random);
+
+  /**
+   * Returns all outcomes of the given afterstate with their probabilities, or null if they are not enumerable. The
+   * probabilities must sum to 1.
+   */
+  default Map<StateType, Double> outcomes(AfterstateType afterstate) {
+    return null;
+  }
+
+  @Override
+  default StateType transition(StateType state, ActionType action, RandomSource random) {
+    return outcome(afterstate(state, action), random);
+  }
+
+}
@@ -0,0 +1,148 @@
+package lib.mcts;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A representation of the chance nodes used by the [ChanceSolver].
+ *
+ * A chance node stands for an action taken at a [DecisionNode] and holds the afterstate of that action. Its children
+ * are the decision nodes of the outcomes sampled so far; each outcome appears once and its visit count tells how
+ * often it has been sampled. When the [ChanceMDP] enumerates its outcomes, the probability of each sampled outcome is
+ * kept with it; the outcomes that have not been sampled are not stored. The statistics of a chance node aggregate
+ * those of its outcomes and are used to select among the actions of its parent.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the parent [DecisionNode], the action and the afterstate.
+ */
+public final class ChanceNode<StateType, ActionType> {
+
+  public ChanceNode(DecisionNode<StateType, ActionType> parent, ActionType action, Object afterstate) {
+    assert parent != null : "parent";
+    assert action != null : "action";
+    this.parent = parent;
+    this.action = action;
+    this.afterstate = afterstate;
+    this.outcomes = new ArrayList<>(2);
+  }
+
+  private final DecisionNode<StateType, ActionType> parent;
+  private final ActionType action;
+  private final Object afterstate;
+  private final List<DecisionNode<StateType, ActionType>> outcomes;
+
+  // The probabilities of the outcomes, by index, or null if none is known
+  private double[] probabilities;
+
+  private long n;
+  private double reward;
+  private double rewardError;
+  // The statistics and prior of the chance node, as far as its search keeps any; see [NodeExtras]
+  private Object extras;
+
+  public final DecisionNode<StateType, ActionType> parent() { return parent; }
+  public final ActionType action() { return action; }
+  public final Object afterstate() { return afterstate; }
+
+  /**
+   * The number of visits to the chance node.
+   */
+  public final long n() { return n; }
+  public final void n(long n) { this.n = n; }
+
+  /**
+   * Adds a visit to the chance node, as [AbstractNode.visit] does.
+   */
+  public final void visit() {
+    n = Math.incrementExact(n);
+  }
+
+  /**
+   * The reward value of the chance node.
+   */
+  public final double reward() { return reward + rewardError; }
+  public final void reward(double reward) {
+    this.reward = reward;
+    this.rewardError = 0;
+  }
+
+  /**
+   * Adds a reward to the reward sum by compensated summation, as [AbstractNode.addReward] does.
+   */
+  public final void addReward(double reward) {
+    var sum = this.reward + reward;
+    rewardError += Math.abs(this.reward) >= Math.abs(reward) ? (this.reward - sum) + reward : (reward - sum) + this.reward;
+    this.reward = sum;
+  }
+
+  /**
+   * The statistics kept for the chance node by a [SelectionPolicy], or null.
+   */
+  public final Object statistics() { return NodeExtras.statistics(extras); }
+  public final void statistics(Object statistics) { this.extras = NodeExtras.statistics(extras, statistics); }
+
+  /**
+   * The value of the action of the chance node given by an [ActionPrior], otherwise 0.
+   */
+  public final double prior() { return NodeExtras.prior(extras); }
+  public final void prior(double prior) { this.extras = NodeExtras.prior(extras, prior); }
+
+  /**
+   * The outcomes sampled so far.
+   */
+  public final List<DecisionNode<StateType, ActionType>> outcomes() {
+    return outcomes;
+  }
+
+  /**
+   * Returns the outcome with the given state, or null if it has not been sampled yet.
+   */
+  public final DecisionNode<StateType, ActionType> outcome(StateType state) {
+    for (var outcome:outcomes) {
+      if (outcome.state().equals(state)) return outcome;
+    }
+    return null;
+  }
+
+  final void addOutcome(DecisionNode<StateType, ActionType> outcome) {
+    outcomes.add(outcome);
+  }
+
+  /**
+   * The probability of the given outcome, or NaN if the MDP does not enumerate the outcomes of the chance node.
+   */
+  public final double probability(DecisionNode<StateType, ActionType> outcome) {
+    var i = outcomes.indexOf(outcome);
+    return probabilities != null && i >= 0 && i < probabilities.length ? probabilities[i] : Double.NaN;
+  }
+
+  final void probability(DecisionNode<StateType, ActionType> outcome, double probability) {
+    var i = outcomes.indexOf(outcome);
+    assert i >= 0 : "outcome";
+    if (probabilities == null) {
+      probabilities = new double[Math.max(outcomes.size(), 2)];
+      Arrays.fill(probabilities, Double.NaN);
+    } else if (i >= probabilities.length) {
+      var length = probabilities.length;
+      probabilities = Arrays.copyOf(probabilities, Math.max(outcomes.size(), length * 2));
+      Arrays.fill(probabilities, length, probabilities.length, Double.NaN);
+    }
+    probabilities[i] = probability;
+  }
+
+  /**
+   * Whether the probabilities of the outcomes are known.
+   */
+  final boolean hasProbabilities() {
+    return probabilities != null;
+  }
+
+  @Override
+  public String toString() {
+    return "Action: %s, Outcomes: %d".formatted(action, outcomes.size());
+  }
+
+}
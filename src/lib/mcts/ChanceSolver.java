@@ -0,0 +1,264 @@
+package lib.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A solver for a Markov Decision Process (MDP) with stochastic transitions, using explicit chance nodes.
+ *
+ * The tree alternates between [DecisionNode]s, which hold states, and [ChanceNode]s, which hold the afterstate of an
+ * action. Selection chooses a chance node by UCT and then samples an outcome of it through the sampler of the
+ * [ChanceMDP]; an outcome seen before continues down the existing subtree, so that statistics accumulate per outcome,
+ * and a new outcome becomes a new leaf. If the MDP enumerates its outcomes, the probability of a new outcome is looked
+ * up when its leaf is created and kept in its chance node; the outcomes that were never sampled are not stored. Unlike
+ * the [StatefulSolver], which freezes the first sampled outcome of each action, and the [GenericSolver], which discards
+ * them, the outcome distribution is thus represented correctly in the tree.
+ *
+ * Outcomes are matched by `equals`, so the states of the MDP should implement it together with `hashCode`.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [ChanceMDP], a depth limit for simulations, a exploration constant, a reward discount
+ * factor and a verbosity flag.
+ */
+public class ChanceSolver<StateType, ActionType> extends AbstractMDPSolver<StateType, ActionType, DecisionNode<StateType, ActionType>> {
+
+  @SuppressWarnings("unchecked")
+  public ChanceSolver(ChanceMDP<StateType, ActionType, ?> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
+    super(mdp, simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
+    this.chanceMDP = (ChanceMDP<StateType, ActionType, Object>) mdp;
+    this.root = createNode(null, this.mdp.initialState());
+  }
+
+  private final ChanceMDP<StateType, ActionType, Object> chanceMDP;
+
+  private DecisionNode<StateType, ActionType> root;
+
+  private ExpansionPolicy outcomeExpansionPolicy = ExpansionPolicy.full();
+
+  /**
+   * The policy that decides whether selection samples a possibly new outcome of a chance node, or revisits one of the
+   * outcomes sampled so far in proportion to their visits.
+   */
+  public final ExpansionPolicy outcomeExpansionPolicy() { return outcomeExpansionPolicy; }
+  public final void outcomeExpansionPolicy(ExpansionPolicy outcomeExpansionPolicy) {
+    assert outcomeExpansionPolicy != null : "outcomeExpansionPolicy";
+    this.outcomeExpansionPolicy = outcomeExpansionPolicy;
+  }
+
+  @Override
+  protected void refreshRoot() {
+    if (root.chances().isEmpty()) {
+      root = createNode(null, root.state());
+    }
+  }
+
+  @Override
+  public final DecisionNode<StateType, ActionType> root() {
+    return root;
+  }
+
+  @Override
+  public final void root(DecisionNode<StateType, ActionType> root) {
+    assert root != null : "root";
+    this.root = root;
+  }
+
+  // SOLVER
+
+  /**
+   * Descends by the highest score over chance nodes and by sampling their outcomes. Returns a node with untried
+   * actions, a terminal node, or the new leaf of an outcome that had not been sampled before.
+   */
+  @Override
+  public DecisionNode<StateType, ActionType> select(DecisionNode<StateType, ActionType> node) {
+    assert node != null : "node";
+    var currentNode = node;
+    for (;;) {
+      // If the node is terminal or at the depth limit, return it
+      if (currentNode.isTerminal() || atTreeDepthLimit(currentNode)) {
+        return currentNode;
+      }
+
+      // This state has not been fully explored
+      var chances = currentNode.chances().size();
+      if (currentNode.validActions().size() > chances && expansionPolicy().expand(chances, currentNode.n())) {
+        return currentNode;
+      }
+
+      // This state has been explored, select best action and sample its outcome
+      var child = step(bestChance(currentNode));
+      if (child.n() == 0) {
+        return child;
+      }
+      currentNode = child;
+    }
+  }
+
+  @Override
+  protected List<ActionType> rootActions() {
+    var actions = new ArrayList<ActionType>();
+    for (var chance:root().chances()) actions.add(chance.action());
+    return actions;
+  }
+
+  @Override
+  protected double rootActionMean(ActionType action) {
+    var chance = root().chance(action);
+    return chance.reward() / chance.n();
+  }
+
+  @Override
+  protected void runRootActionIteration(ActionType rootAction) {
+    runTreeSearchIteration(step(root().chance(rootAction)));
+  }
+
+  @Override
+  public DecisionNode<StateType, ActionType> expand(DecisionNode<StateType, ActionType> node) {
+    assert node != null : "node";
+    // A new outcome leaf from selection is simulated as is
+    if (node.n() == 0 && node.parent() != null) {
+      return node;
+    }
+
+    // If the node is terminal or at the depth limit, return it
+    if (node.isTerminal() || atTreeDepthLimit(node)) {
+      return node;
+    }
+
+    // Expand an unexplored action
+    var actionTaken = untriedAction(node.state(), node.validActions().stream().filter(a -> node.chance(a) == null));
+
+    // Take the action and sample an outcome
+    var chance = createChance(node, actionTaken);
+    return createNode(chance, sample(chance));
+  }
+
+  @Override
+  protected void update(DecisionNode<StateType, ActionType> node, double reward) {
+    super.update(node, reward);
+    var chance = node.chance();
+    if (chance != null) {
+      chance.visit();
+      chance.addReward(reward);
+      updateStatistics(chance.statistics(), reward);
+    }
+  }
+
+  /**
+   * Returns the action recommended by Sequential Halving, if it ran, otherwise the action of the most visited chance
+   * node of the root.
+   */
+  @Override
+  public ActionType extractOptimalAction() {
+    if (recommendation() != null) {
+      return recommendation();
+    }
+    var mostVisited = root().chances().stream().max((a,b) -> Long.compare(a.n(), b.n())).orElse(null);
+    return mostVisited != null ? mostVisited.action() : null;
+  }
+
+  // Utilities
+
+  @Override
+  protected final StateType state(DecisionNode<StateType, ActionType> node) {
+    return node.state();
+  }
+
+  @Override
+  protected final boolean isTerminal(DecisionNode<StateType, ActionType> node) {
+    return node.isTerminal();
+  }
+
+  /**
+   * Returns the chance node of the given node with the highest score, the first one on ties.
+   */
+  private ChanceNode<StateType, ActionType> bestChance(DecisionNode<StateType, ActionType> node) {
+    var parentN = node.n();
+    ChanceNode<StateType, ActionType> best = null;
+    var bestScore = Double.NEGATIVE_INFINITY;
+    for (var chance:node.chances()) {
+      var score = score(parentN, chance.n(), amafReward(node, chance.action(), chance.n(), chance.reward()), chance.statistics(), chance.prior());
+      if (best == null || score > bestScore) {
+        best = chance;
+        bestScore = score;
+      }
+    }
+    if (best == null) {
+      throw new IllegalStateException("There were no children for explored node");
+    }
+    return best;
+  }
+
+  /**
+   * Moves from a chance node to one of its outcomes: an outcome sampled before, or a new leaf that has not been visited
+   * yet.
+   */
+  private DecisionNode<StateType, ActionType> step(ChanceNode<StateType, ActionType> chance) {
+    if (!outcomeExpansionPolicy.expand(chance.outcomes().size(), chance.n())) {
+      return revisit(chance);
+    }
+    var outcome = sample(chance);
+    var child = chance.outcome(outcome);
+    return child != null ? child : createNode(chance, outcome);
+  }
+
+  /**
+   * Samples an outcome state of the given chance node.
+   */
+  protected StateType sample(ChanceNode<StateType, ActionType> chance) {
+    return chanceMDP.outcome(chance.afterstate(), random());
+  }
+
+  /**
+   * Chooses one of the outcomes sampled so far, in proportion to their probabilities if they are known, otherwise to
+   * how often each was visited.
+   */
+  private DecisionNode<StateType, ActionType> revisit(ChanceNode<StateType, ActionType> chance) {
+    var outcomes = chance.outcomes();
+    var weighted = chance.hasProbabilities();
+    var total = 0.0;
+    for (var outcome:outcomes) total += weighted ? chance.probability(outcome) : outcome.n();
+    var u = random().nextDouble() * total;
+    for (var outcome:outcomes) {
+      u -= weighted ? chance.probability(outcome) : outcome.n();
+      if (u < 0) return outcome;
+    }
+    return outcomes.get(outcomes.size() - 1);
+  }
+
+  /**
+   * Returns the probability of the given outcome of the chance node, enumerating the outcomes of its afterstate, or NaN
+   * if the MDP does not enumerate them.
+   */
+  private double probability(ChanceNode<StateType, ActionType> chance, StateType outcome) {
+    var outcomes = chanceMDP.outcomes(chance.afterstate());
+    return outcomes != null ? outcomes.getOrDefault(outcome, 0.0) : Double.NaN;
+  }
+
+  private final ChanceNode<StateType, ActionType> createChance(DecisionNode<StateType, ActionType> parent, ActionType action) {
+    var afterstate = chanceMDP.afterstate(parent.state(), action);
+    var chance = new ChanceNode<>(parent, action, afterstate);
+    chance.statistics(statistics(parent.state(), action));
+    chance.prior(prior(parent.state(), action));
+    parent.addChance(chance);
+    return chance;
+  }
+
+  private final DecisionNode<StateType, ActionType> createNode(ChanceNode<StateType, ActionType> chance, StateType state) {
+    var validActions = distinctActions(state, mdp.actions(state));
+    var isTerminal = mdp.isTerminal(state);
+    var node = new DecisionNode<>(chance, state, validActions, isTerminal);
+    annotate(node, state);
+    if (chance != null) {
+      chance.parent().addChild(node);
+      var probability = probability(chance, state);
+      if (!Double.isNaN(probability)) {
+        chance.probability(node, probability);
+      }
+    }
+    return node;
+  }
+
+}
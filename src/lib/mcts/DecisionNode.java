@@ -0,0 +1,107 @@
+package lib.mcts;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import static java.util.stream.Collectors.*;
+
+/**
+ * A representation of the decision nodes used by the [ChanceSolver] to solve a Markov Decision Process (MDP).
+ *
+ * A decision node holds a state in which an action is to be chosen. Each action taken from it leads to a
+ * [ChanceNode], whose children are in turn the decision nodes of the sampled outcomes. The parent of a decision node is
+ * the decision node one level up; the chance node in between is available through [chance].
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the parent [ChanceNode] (null for the root), a [StateType] that represents the state at this
+ * node, a set of valid actions that can be taken from this node and whether this node represents a terminal state.
+ */
+public final class DecisionNode<StateType, ActionType> extends AbstractNode<ActionType, DecisionNode<StateType, ActionType>> {
+
+  public DecisionNode(ChanceNode<StateType, ActionType> chance, StateType state, Set<ActionType> validActions, boolean isTerminal) {
+    super(chance != null ? chance.parent() : null, chance != null ? chance.action() : null);
+    this.chance = chance;
+    this.state = state;
+    assert validActions != null : "validActions";
+    this.validActions = validActions;
+    this.isTerminal = isTerminal;
+    this.chances = new LinkedHashMap<>();
+  }
+
+  private final ChanceNode<StateType, ActionType> chance;
+  private final StateType state;
+  private final boolean isTerminal;
+  private final Set<ActionType> validActions;
+
+  public final StateType state() { return state; }
+  public final boolean isTerminal() { return isTerminal; }
+
+  /**
+   * The chance node of which this node is an outcome, or null for the root.
+   */
+  public final ChanceNode<StateType, ActionType> chance() { return chance; }
+
+  @Override
+  public final Set<ActionType> validActions() { return validActions; }
+
+  private final Map<ActionType, ChanceNode<StateType, ActionType>> chances;
+
+  /**
+   * Returns the chance node for the given action, or null if the action has not been taken yet.
+   */
+  public final ChanceNode<StateType, ActionType> chance(ActionType action) {
+    return chances.get(action);
+  }
+
+  /**
+   * Returns the chance nodes of all actions taken at least once from this node.
+   */
+  public final Collection<ChanceNode<StateType, ActionType>> chances() {
+    return chances.values();
+  }
+
+  final void addChance(ChanceNode<StateType, ActionType> chance) {
+    if (chances.containsKey(chance.action())) {
+      throw new IllegalArgumentException("A chance node with the same action has already been added");
+    }
+    chances.put(chance.action(), chance);
+  }
+
+  @Override
+  public void addChild(DecisionNode<StateType, ActionType> child) {
+    var chance = child.chance();
+    if (chance == null || chance.parent() != this) {
+      throw new IllegalArgumentException("Child must be an outcome of a chance node of this node");
+    }
+    if (chances.get(chance.action()) != chance) {
+      addChance(chance);
+    }
+    chance.addOutcome(child);
+  }
+
+  /**
+   * Returns the outcomes of all chance nodes of this node.
+   */
+  @Override
+  public Collection<DecisionNode<StateType, ActionType>> children() {
+    return chances.values().stream().flatMap(c -> c.outcomes().stream()).collect(toList());
+  }
+
+  @Override
+  public Collection<DecisionNode<StateType, ActionType>> children(ActionType action) {
+    assert action != null;
+    var chance = chances.get(action);
+    return chance == null ? Collections.emptyList() : List.copyOf(chance.outcomes());
+  }
+
+  @Override
+  public String toString() {
+    return "State: %s, Max Reward: %.5f".formatted(state(),maxReward());
+  }
+
+}
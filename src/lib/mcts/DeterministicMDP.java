@@ -0,0 +1,15 @@
+package lib.mcts;
+
+/**
+ * A [MDP] whose transitions are deterministic: taking an action in a state always leads to the same state, whatever
+ * the source of randomness it is given.
+ *
+ * The interface adds nothing to [MDP]; implementing it declares the property to the searches that rely on it, such as
+ * the [NestedSolver], which replays sequences of actions. A [DeterminizedMDP] is deterministic by construction.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface DeterministicMDP<StateType, ActionType> extends MDP<StateType, ActionType> {
+
+}
@@ -0,0 +1,89 @@
+package lib.mcts;
+
+import java.util.Set;
+
+/**
+ * A [MDP] decorator that turns a stochastic MDP into a deterministic one.
+ *
+ * Every transition draws from a source seeded by a splitmix64 mix of the seed of the determinization and the hash
+ * codes of the state and the action, so taking an action in a state always leads to the same outcome, and any two
+ * determinizations with different seeds are independent samples of the stochastic MDP; it is thus a [DeterministicMDP].
+ * The states of the wrapped MDP should implement `hashCode` by value, so that equal states reached along different
+ * paths share their outcomes. All other methods delegate to the wrapped MDP.
+ *
+ * The [AdversarialMDP] and [SemiMDP] extensions of the wrapped MDP are forwarded through [extension]. Those of a
+ * [ChanceMDP], [MutableMDP] or [BatchMDP] are not, since their transitions would not be determinized; the solvers then
+ * take the transitions of this MDP one at a time.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the wrapped [MDP] and the seed of the determinization.
+ */
+public final class DeterminizedMDP<StateType, ActionType> implements DeterministicMDP<StateType, ActionType> {
+
+  public DeterminizedMDP(MDP<StateType, ActionType> mdp, long seed) {
+    assert mdp != null : "mdp";
+    this.mdp = mdp;
+    this.seed = seed;
+  }
+
+  private final MDP<StateType, ActionType> mdp;
+  private final long seed;
+  private final ThreadLocal<RandomSource> outcomes = ThreadLocal.withInitial(RandomSource::reseedable);
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+  public final long seed() { return seed; }
+
+  @Override
+  public StateType initialState() {
+    return mdp.initialState();
+  }
+
+  @Override
+  public boolean isTerminal(StateType state) {
+    return mdp.isTerminal(state);
+  }
+
+  @Override
+  public double reward(StateType previousState, ActionType action, StateType state) {
+    return mdp.reward(previousState, action, state);
+  }
+
+  @Override
+  public Set<ActionType> actions(StateType state) {
+    return mdp.actions(state);
+  }
+
+  @Override
+  public StateType transition(StateType state, ActionType action) {
+    return mdp.transition(state, action, outcome(state, action));
+  }
+
+  /**
+   * Takes the transition determined by the state and the action; the given source is not used.
+   */
+  @Override
+  public StateType transition(StateType state, ActionType action, RandomSource random) {
+    return mdp.transition(state, action, outcome(state, action));
+  }
+
+  @Override
+  public <T> T extension(Class<T> type) {
+    if (type == AdversarialMDP.class || type == SemiMDP.class) {
+      return mdp.extension(type);
+    }
+    return DeterministicMDP.super.extension(type);
+  }
+
+  /**
+   * Returns the source of the outcome of the given action in the given state. The source is reused by the calls made on
+   * the same thread, so none is allocated per transition.
+   */
+  private RandomSource outcome(StateType state, ActionType action) {
+    var outcome = outcomes.get();
+    outcome.reseed(RandomSource.mix(seed ^ RandomSource.mix(state.hashCode() * 0x9E3779B97F4A7C15L + action.hashCode())));
+    return outcome;
+  }
+
+}
@@ -0,0 +1,160 @@
+package lib.mcts;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * A determinized ensemble search for stochastic Markov Decision Processes (MDP).
+ *
+ * The solver samples a number of determinizations of the MDP, each a [DeterminizedMDP] with its own seed, and searches
+ * each with its own [StatefulSolver]. Within a determinization the transitions are deterministic, so the states kept in
+ * the tree are exact and every iteration reuses them; the ensemble as a whole samples the randomness of the MDP. The
+ * trees are searched in parallel on the common [java.util.concurrent.ForkJoinPool], and the statistics of their root
+ * actions are added up to choose an action.
+ *
+ * The wrapped MDP is used by several threads at once and must be safe for that. Each tree gets its own source of
+ * randomness, split from the source of the ensemble.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [MDP], the number of determinizations, a depth limit for simulations, a exploration
+ * constant, a reward discount factor and a verbosity flag.
+ */
+public class EnsembleSolver<StateType, ActionType> {
+
+  public EnsembleSolver(MDP<StateType, ActionType> mdp, int determinizations, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
+    assert mdp != null : "mdp";
+    assert determinizations > 0 : "determinizations";
+    this.mdp = mdp;
+    this.determinizations = determinizations;
+    this.simulationDepthLimit = simulationDepthLimit;
+    this.explorationConstant = explorationConstant;
+    this.rewardDiscountFactor = rewardDiscountFactor;
+    this.verbose = verbose;
+    random(RandomSource.create());
+  }
+
+  private final MDP<StateType, ActionType> mdp;
+  private final int determinizations;
+  private final int simulationDepthLimit;
+  private final double explorationConstant;
+  private final double rewardDiscountFactor;
+  private final boolean verbose;
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+  public final int determinizations() { return determinizations; }
+
+  private RandomSource random;
+  private List<StatefulSolver<StateType, ActionType>> solvers;
+
+  /**
+   * The source of randomness of the ensemble. Setting it draws new determinizations and replaces the solvers, so it
+   * should be set before the solvers are configured.
+   */
+  public final RandomSource random() { return random; }
+  public final void random(RandomSource random) {
+    assert random != null : "random";
+    this.random = random;
+    var solvers = new ArrayList<StatefulSolver<StateType, ActionType>>(determinizations);
+    for (var i = 0; i < determinizations; i++) {
+      var solver = new StatefulSolver<>(new DeterminizedMDP<>(mdp, random.nextLong()), simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
+      solver.random(random.split());
+      solvers.add(solver);
+    }
+    this.solvers = Collections.unmodifiableList(solvers);
+  }
+
+  /**
+   * The solvers of the determinizations, e.g. to set their options.
+   */
+  public final List<StatefulSolver<StateType, ActionType>> solvers() {
+    return solvers;
+  }
+
+  /**
+   * Applies the given configuration to the solver of every determinization.
+   */
+  public final void configure(Consumer<StatefulSolver<StateType, ActionType>> configuration) {
+    assert configuration != null : "configuration";
+    solvers.forEach(configuration);
+  }
+
+  // SOLVER
+
+  /**
+   * Runs the given number of iterations on every tree, in parallel.
+   */
+  public void runTreeSearch(int iterations) {
+    invokeAll(solver -> solver.runTreeSearch(iterations));
+  }
+
+  /**
+   * Runs iterations on every tree, in parallel, until the given time budget is spent.
+   */
+  public void runTreeSearch(Duration budget) {
+    assert budget != null : "budget";
+    invokeAll(solver -> solver.runTreeSearch(budget));
+  }
+
+  /**
+   * The visits and rewards of each root action, added up over the trees.
+   */
+  public final Map<ActionType, ActionStatistics> rootStatistics() {
+    var statistics = new LinkedHashMap<ActionType, ActionStatistics>();
+    for (var solver:solvers) {
+      for (var child:solver.root().children()) {
+        statistics.merge(child.inducingAction(), new ActionStatistics(child.n(), child.reward()), ActionStatistics::add);
+      }
+    }
+    return statistics;
+  }
+
+  /**
+   * Returns the root action with the most visits over all trees.
+   */
+  public ActionType extractOptimalAction() {
+    var statistics = rootStatistics();
+    if (verbose) {
+      System.out.println("Root statistics: " + statistics);
+    }
+    ActionType best = null;
+    var bestN = -1L;
+    for (var entry:statistics.entrySet()) {
+      if (entry.getValue().n() > bestN) {
+        best = entry.getKey();
+        bestN = entry.getValue().n();
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The visits and the sum of the rewards of a root action.
+   */
+  public record ActionStatistics(long n, double reward) {
+
+    public double mean() {
+      return reward / n;
+    }
+
+    ActionStatistics add(ActionStatistics other) {
+      return new ActionStatistics(n + other.n, reward + other.reward);
+    }
+  }
+
+  private void invokeAll(Consumer<StatefulSolver<StateType, ActionType>> search) {
+    var tasks = new ArrayList<ForkJoinTask<?>>(solvers.size());
+    for (var solver:solvers) {
+      tasks.add(ForkJoinTask.adapt(() -> search.accept(solver)));
+    }
+    ForkJoinTask.invokeAll(tasks);
+  }
+
+}
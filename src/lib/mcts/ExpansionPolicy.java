@@ -0,0 +1,37 @@
+package lib.mcts;
+
+import static java.lang.Math.*;
+
+/**
+ * Decides whether a node may get another child during selection.
+ *
+ * By default a node is expanded until every valid action has a child before selection descends below it. For nodes
+ * with many actions, or many outcomes in a [ChanceSolver], that spends the budget on breadth; progressive widening
+ * instead lets the number of children grow with the number of visits, so that the search also gets deep.
+ */
+@FunctionalInterface
+public interface ExpansionPolicy {
+
+  /**
+   * Whether a node with the given number of children, visited n times, may get another child.
+   */
+  boolean expand(int children, long n);
+
+  /**
+   * Always allows another child; every action is tried before selection descends.
+   */
+  static ExpansionPolicy full() {
+    return (children, n) -> true;
+  }
+
+  /**
+   * Allows a node visited n times at most `max(1, k * n^alpha)` children. Typical values are k in [1,4] and alpha in
+   * [0.25,0.5].
+   */
+  static ExpansionPolicy progressiveWidening(double k, double alpha) {
+    assert k > 0 : "k";
+    assert alpha > 0 && alpha < 1 : "alpha";
+    return (children, n) -> children < max(1.0, k * pow(n, alpha));
+  }
+
+}
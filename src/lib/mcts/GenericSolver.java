@@ -1,6 +1,5 @@
 package lib.mcts;
 
-import static java.lang.Math.*;
 import static java.util.stream.Collectors.*;
 
 /**
@@ -16,28 +15,23 @@ import static java.util.stream.Collectors.*;
  * The constructor takes in a [MDP], a depth limit for simulations, a exploration constant, a reward discount factor
  * and a verbosity flag.
  */
-public class GenericSolver<StateType, ActionType> extends AbstractSolver<ActionType, ActionNode<StateType, ActionType>> {
+public class GenericSolver<StateType, ActionType> extends AbstractMDPSolver<StateType, ActionType, ActionNode<StateType, ActionType>> {
 
   public GenericSolver(MDP<StateType, ActionType> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
-    super(verbose, explorationConstant);
-    assert mdp != null : "mdp";
-    this.mdp = mdp;
-    this.simulationDepthLimit = simulationDepthLimit;
-    this.rewardDiscountFactor = rewardDiscountFactor;
+    super(mdp, simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
     this.root = new ActionNode<>(null,null);
     simulateActions(this.root);
   }
 
-  protected final MDP<StateType, ActionType> mdp;
-  protected final int simulationDepthLimit;
-  protected final double rewardDiscountFactor;
-
-  public final MDP<StateType, ActionType> mdp() { return mdp; }
-  public final int simulationDepthLimit() { return simulationDepthLimit; }
-  public final double rewardDiscountFactor() { return rewardDiscountFactor; }
-
   private ActionNode<StateType, ActionType> root;
 
+  @Override
+  protected void refreshRoot() {
+    if (root.children().isEmpty()) {
+      simulateActions(root);
+    }
+  }
+
   @Override
   public final ActionNode<StateType, ActionType> root() {
     return root;
@@ -64,20 +58,20 @@ public class GenericSolver<StateType, ActionType> extends AbstractSolver<ActionT
 
     // Run a simulation greedily
     for (;;) {
-      if (mdp.isTerminal(currentNode.state())) {
+      if (currentNode.isTerminal() || atTreeDepthLimit(currentNode)) {
         return currentNode;
       }
 
       var currentChildren = currentNode.children();
       var exploredActions = currentChildren.stream().map(c -> c.inducingAction()).collect(toSet());
 
-      if (currentNode.validActions().stream().anyMatch(a -> !exploredActions.contains(a))) {
+      if (currentNode.validActions().stream().anyMatch(a -> !exploredActions.contains(a)) && expansionPolicy().expand(exploredActions.size(), currentNode.n())) {
         // There are unexplored actions
         return currentNode;
       }
 
       // All actions have been explored, choose best one
-      currentNode = currentChildren.stream().max((a,b) -> compareUCT(a,b)).orElseThrow(() -> new IllegalStateException("There were no children for explored node"));
+      currentNode = bestChild(currentChildren);
       simulateActions(currentNode);
     }
   }
@@ -85,8 +79,8 @@ public class GenericSolver<StateType, ActionType> extends AbstractSolver<ActionT
   @Override
   public ActionNode<StateType, ActionType> expand(ActionNode<StateType, ActionType> node) {
     assert node != null : "node";
-    // If the node is terminal, return it, except root node
-    if (mdp.isTerminal(node.state())) {
+    // If the node is terminal or at the depth limit, return it, except root node
+    if (node.isTerminal() || atTreeDepthLimit(node)) {
       return node;
     }
 
@@ -94,90 +88,38 @@ public class GenericSolver<StateType, ActionType> extends AbstractSolver<ActionT
     var exploredActions = node.children().stream().map(c -> c.inducingAction()).collect(toSet());
     var unexploredActions = node.validActions().stream().filter(a -> !exploredActions.contains(a));
     // Action cannot be null
-    var actionTaken = unexploredActions.findAny().orElseThrow(() -> new IllegalStateException("No unexplored actions available"));
+    var actionTaken = untriedAction(node.state(), unexploredActions);
 
     // Transition to new state for given action
     var newNode = new ActionNode<>(node, actionTaken);
+    initialize(newNode, node.state(), actionTaken);
     node.addChild(newNode);
     simulateActions(newNode);
 
     return newNode;
   }
 
-  @Override
-  public double simulate(ActionNode<StateType, ActionType> node) {
-    assert node != null : "node";
-    traceln("Simulation:");
-
-    // If state is terminal, the reward is defined by MDP
-    if (mdp.isTerminal(node.state())) {
-      traceln("Terminal state reached");
-      var parent = node.parent();
-      return mdp.reward((parent != null ? parent.state() : null), node.inducingAction(), node.state());
-    }
-
-    var depth = 0;
-    var currentState = node.state();
-    var discount = rewardDiscountFactor;
-
-    for (;;) {
-      var validActions = mdp.actions(currentState);
-      var randomAction = validActions.stream().findAny().get();
-      var newState = mdp.transition(currentState, randomAction);
-
-      if (verbose()) {
-        trace("-> " + randomAction);
-        trace(" => " + newState);
-      }
-
-      if (mdp.isTerminal(newState)) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Terminal state reached : " + reward);
-        }
-
-        return reward;
-      }
-
-      currentState = newState;
-      depth++;
-      discount *= rewardDiscountFactor;
-
-      if (depth > simulationDepthLimit) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Depth limit reached: " + reward);
-        }
+  // Utilities
 
-        return reward;
-      }
-    }
+  @Override
+  protected final StateType state(ActionNode<StateType, ActionType> node) {
+    return node.state();
   }
 
   @Override
-  public void backPropagate(ActionNode<StateType, ActionType> node, double reward) {
-    assert node != null : "node";
-    var currentStateNode = node;
-    var currentReward = reward;
-
-    for (;;) {
-      currentStateNode.maxReward(max(currentStateNode.maxReward(), currentReward));
-      currentStateNode.reward(currentStateNode.reward() + currentReward);
-      currentStateNode.n(currentStateNode.n() + 1);
-      if ((currentStateNode = currentStateNode.parent()) == null) break;
-      currentReward *= rewardDiscountFactor;
-    }
+  protected final boolean isTerminal(ActionNode<StateType, ActionType> node) {
+    return node.isTerminal();
   }
 
-  // Utilities
-
   private final void simulateActions(ActionNode<StateType, ActionType> node) {
     var parent = node.parent();
 
     if (parent == null) {
       var initialState = mdp.initialState();
       node.state(initialState);
-      node.validActions(mdp.actions(initialState));
+      node.validActions(distinctActions(initialState, mdp.actions(initialState)));
+      node.isTerminal(mdp.isTerminal(initialState));
+      annotate(node, initialState);
       return;
     }
 
@@ -188,9 +130,11 @@ public class GenericSolver<StateType, ActionType> extends AbstractSolver<ActionT
     if (parentAction == null) {
       throw new IllegalStateException("Action was null for non-null parent");
     }
-    var state = mdp.transition(parentState, parentAction);
+    var state = mdp.transition(parentState, parentAction, random());
     node.state(state);
-    node.validActions(mdp.actions(state));
+    node.validActions(distinctActions(state, mdp.actions(state)));
+    node.isTerminal(mdp.isTerminal(state));
+    annotate(node, state);
   }
 
 }
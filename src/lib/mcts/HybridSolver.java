@@ -0,0 +1,212 @@
+package lib.mcts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * A solver for a Markov Decision Process (MDP) that keeps the states of some of the nodes in the tree.
+ *
+ * This solver sits between the [GenericSolver], which keeps no states and replays every path from the root, and the
+ * [StatefulSolver], which keeps every state. A [RetentionPolicy] decides which nodes keep their state; the state of any
+ * other node is recomputed by replaying the transitions from its nearest retained ancestor. Optionally, recomputed
+ * states are held in a cache bounded by a byte budget, so that recently used states need not be replayed again. The
+ * actions available at a node and whether it is terminal are always kept, so selection never needs a state.
+ *
+ * For deterministic MDPs this trades CPU for memory without changing the search. For stochastic MDPs, as with the
+ * [GenericSolver], a replayed state is a new sample of the outcome.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [MDP], a depth limit for simulations, a exploration constant, a reward discount factor,
+ * a verbosity flag and a [RetentionPolicy].
+ */
+public class HybridSolver<StateType, ActionType> extends AbstractMDPSolver<StateType, ActionType, ActionNode<StateType, ActionType>> {
+
+  public HybridSolver(MDP<StateType, ActionType> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose, RetentionPolicy retentionPolicy) {
+    super(mdp, simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
+    assert retentionPolicy != null : "retentionPolicy";
+    this.retentionPolicy = retentionPolicy;
+    this.root = createNode(null, null, this.mdp.initialState());
+  }
+
+  private final RetentionPolicy retentionPolicy;
+
+  public final RetentionPolicy retentionPolicy() { return retentionPolicy; }
+
+  private ActionNode<StateType, ActionType> root;
+
+  @Override
+  protected void refreshRoot() {
+    if (root.children().isEmpty()) {
+      root.validActions(distinctActions(root.state(), mdp.actions(root.state())));
+    }
+  }
+
+  @Override
+  public final ActionNode<StateType, ActionType> root() {
+    return root;
+  }
+
+  @Override
+  public final void root(ActionNode<StateType, ActionType> root) {
+    assert root != null : "root";
+    if (!root.hasState()) {
+      root.state(state(root));
+    }
+    this.root = root;
+  }
+
+  private StateCache stateCache;
+
+  /**
+   * Holds states that are not retained in their nodes in a least-recently-used cache, until the sizes of the cached
+   * states as given by the sizeOf function exceed the byte budget.
+   */
+  public final void stateCache(long byteBudget, ToLongFunction<StateType> sizeOf) {
+    assert byteBudget > 0 : "byteBudget";
+    assert sizeOf != null : "sizeOf";
+    this.stateCache = new StateCache(byteBudget, sizeOf);
+  }
+
+  /**
+   * The total size of the states currently held in the state cache.
+   */
+  public final long stateCacheBytes() {
+    return stateCache != null ? stateCache.bytes : 0;
+  }
+
+  // SOLVER
+
+  @Override
+  public ActionNode<StateType, ActionType> select(ActionNode<StateType, ActionType> node) {
+    assert node != null : "node";
+    var currentNode = node;
+    for (;;) {
+      // If the node is terminal or at the depth limit, return it
+      if (currentNode.isTerminal() || atTreeDepthLimit(currentNode)) {
+        return currentNode;
+      }
+
+      // This state has not been fully explored
+      var children = currentNode.children().size();
+      if (currentNode.validActions().size() > children && expansionPolicy().expand(children, currentNode.n())) {
+        return currentNode;
+      }
+
+      // This state has been explored, select best action
+      currentNode = bestChild(currentNode.children());
+    }
+  }
+
+  @Override
+  public ActionNode<StateType, ActionType> expand(ActionNode<StateType, ActionType> node) {
+    assert node != null : "node";
+    // If the node is terminal or at the depth limit, return it
+    if (node.isTerminal() || atTreeDepthLimit(node)) {
+      return node;
+    }
+
+    // Expand an unexplored action
+    var state = state(node);
+    var actionTaken = untriedAction(state, node.validActions().stream().filter(a -> node.children(a).isEmpty()));
+
+    // Transition to new state for given action
+    var newState = mdp.transition(state, actionTaken, random());
+    var newNode = createNode(node, actionTaken, newState);
+    initialize(newNode, state, actionTaken);
+    return newNode;
+  }
+
+  // Utilities
+
+  /**
+   * Returns the state at the given node, replaying the transitions from the nearest ancestor whose state is known.
+   */
+  @Override
+  protected final StateType state(ActionNode<StateType, ActionType> node) {
+    if (node.hasState()) {
+      return node.state();
+    }
+    var state = stateCache != null ? stateCache.get(node) : null;
+    if (state != null) {
+      return state;
+    }
+
+    // Walk up to the nearest known state, then replay down
+    var path = new ArrayList<ActionNode<StateType, ActionType>>();
+    var current = node;
+    do {
+      path.add(current);
+      current = current.parent();
+      state = current.hasState() ? current.state() : stateCache != null ? stateCache.get(current) : null;
+    } while (state == null);
+
+    for (var i = path.size() - 1; i >= 0; i--) {
+      var next = path.get(i);
+      state = mdp.transition(state, next.inducingAction(), random());
+      if (stateCache != null) {
+        stateCache.put(next, state);
+      }
+    }
+    return state;
+  }
+
+  @Override
+  protected final boolean isTerminal(ActionNode<StateType, ActionType> node) {
+    return node.isTerminal();
+  }
+
+  private final ActionNode<StateType, ActionType> createNode(ActionNode<StateType, ActionType> parent, ActionType inducingAction, StateType state) {
+    var node = new ActionNode<StateType, ActionType>(parent, inducingAction);
+    node.validActions(distinctActions(state, mdp.actions(state)));
+    node.isTerminal(mdp.isTerminal(state));
+    annotate(node, state);
+    if (parent == null || retentionPolicy.retain(node.depth())) {
+      node.state(state);
+    } else if (stateCache != null) {
+      stateCache.put(node, state);
+    }
+    if (parent != null) {
+      parent.addChild(node);
+    }
+    return node;
+  }
+
+  /**
+   * A least-recently-used cache of node states bounded by the total size of the states.
+   */
+  private final class StateCache extends LinkedHashMap<ActionNode<StateType, ActionType>, StateType> {
+
+    StateCache(long byteBudget, ToLongFunction<StateType> sizeOf) {
+      super(16, 0.75f, true);
+      this.byteBudget = byteBudget;
+      this.sizeOf = sizeOf;
+    }
+
+    final long byteBudget;
+    final ToLongFunction<StateType> sizeOf;
+    long bytes;
+
+    @Override
+    public StateType put(ActionNode<StateType, ActionType> node, StateType state) {
+      var previous = super.put(node, state);
+      if (previous != null) {
+        bytes -= sizeOf.applyAsLong(previous);
+      }
+      bytes += sizeOf.applyAsLong(state);
+      var eldest = entrySet().iterator();
+      while (bytes > byteBudget && eldest.hasNext()) {
+        var entry = eldest.next();
+        if (entry.getKey() == node) break;
+        bytes -= sizeOf.applyAsLong(entry.getValue());
+        eldest.remove();
+      }
+      return previous;
+    }
+
+    private static final long serialVersionUID = 1L;
+  }
+
+}
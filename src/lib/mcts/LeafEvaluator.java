@@ -0,0 +1,17 @@
+package lib.mcts;
+
+/**
+ * A static evaluation of MDP states, used to score a rollout that has been cut off before reaching a terminal state.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ */
+@FunctionalInterface
+public interface LeafEvaluator<StateType> {
+
+  /**
+   * Returns an estimate of the reward a rollout from the given state would yield, on the same scale as
+   * [MDP.reward] and without discounting.
+   */
+  double evaluate(StateType state);
+
+}
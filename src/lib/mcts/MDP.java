@@ -19,6 +19,15 @@ public interface MDP<StateType, ActionType> {
    */
   StateType transition(StateType state, ActionType action);
 
+  /**
+   * Represents a transition of MDP state that draws any randomness it needs from the given source. The solvers call
+   * this form, so a stochastic MDP should override it to be reproducible and free of contention when run in parallel.
+   * The default ignores the source.
+   */
+  default StateType transition(StateType state, ActionType action, RandomSource random) {
+    return transition(state, action);
+  }
+
   /**
    * Represents the reward function of the MDP. The arguments are the previous state, the action taken and the
    * terminal state. The first two arguments may be null. The return value is a double that represents the score of
@@ -41,4 +50,13 @@ public interface MDP<StateType, ActionType> {
    */
   Set<ActionType> actions(StateType state);
 
+  /**
+   * Returns this MDP as the given extension of [MDP], such as [AdversarialMDP], or null if it does not implement it.
+   * The solvers look up the extensions they use through this function, so that a decorator can forward those of the
+   * MDP it wraps.
+   */
+  default <T> T extension(Class<T> type) {
+    return type.isInstance(this) ? type.cast(this) : null;
+  }
+
 }
@@ -0,0 +1,205 @@
+package lib.mcts;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import static java.lang.Math.*;
+
+/**
+ * The Move-Average Sampling Technique (MAST) for the rollouts of a solver.
+ *
+ * MAST keeps the average reward of every action over all the iterations of the search, wherever the action was taken,
+ * in the tree or in a rollout, and biases the choice of actions in rollouts towards the actions with high averages,
+ * either by Gibbs sampling or epsilon-greedily. With an [ngramThreshold] it also keeps the average reward of every pair of
+ * consecutive actions, as in the N-gram Selection Technique (NST), and scores an action by the average of its own mean
+ * and the mean of the pair it forms with the previous action of the rollout, once that pair has been seen often enough.
+ * Like [Rave], this is cheap and needs no knowledge of the domain, only that the value of an action depends little on
+ * when it is taken.
+ *
+ * The averages are kept in arrays indexed by action code, so actions must map to codes in `[0,actionCount)`; in
+ * adversarial mode they are kept for each player. The averages outlive a search, so that they carry over to the next
+ * move; [decay] fades them out gradually. A [Mast] belongs to a single solver and is not safe for use by several
+ * threads.
+ *
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The instances are created by [gibbs] and [epsilonGreedy].
+ */
+public final class Mast<ActionType> {
+
+  private Mast(ToIntFunction<ActionType> actionCode, int actionCount, double temperature, double epsilon) {
+    assert actionCode != null : "actionCode";
+    assert actionCount > 0 : "actionCount";
+    this.actionCode = actionCode;
+    this.actionCount = actionCount;
+    this.temperature = temperature;
+    this.epsilon = epsilon;
+    this.table = new double[4 * actionCount];
+  }
+
+  /**
+   * Returns a [Mast] that draws rollout actions with probabilities proportional to `exp(mean / temperature)`.
+   */
+  public static <ActionType> Mast<ActionType> gibbs(ToIntFunction<ActionType> actionCode, int actionCount, double temperature) {
+    assert temperature > 0 : "temperature";
+    return new Mast<>(actionCode, actionCount, temperature, 0);
+  }
+
+  /**
+   * Returns a [Mast] that takes the rollout action with the highest mean, or a uniformly random action with the given
+   * probability.
+   */
+  public static <ActionType> Mast<ActionType> epsilonGreedy(ToIntFunction<ActionType> actionCode, int actionCount, double epsilon) {
+    assert epsilon >= 0 && epsilon <= 1 : "epsilon";
+    return new Mast<>(actionCode, actionCount, 0, epsilon);
+  }
+
+  private final ToIntFunction<ActionType> actionCode;
+  private final int actionCount;
+  private final double temperature;
+  private final double epsilon;
+
+  public final ToIntFunction<ActionType> actionCode() { return actionCode; }
+  public final int actionCount() { return actionCount; }
+
+  // The visits and the sum of the rewards of each action, indexed by `code << 1 | player`
+  private final double[] table;
+  // The same for each pair of consecutive actions, indexed by `(previous * actionCount + code) << 1 | player`
+  private double[] pairs;
+  private int ngramThreshold;
+  private double initialValue;
+
+  /**
+   * The number of times a pair of consecutive actions must have been seen before its average is used, or 0 to keep no
+   * averages of pairs. Setting it clears the averages of pairs.
+   */
+  public final int ngramThreshold() { return ngramThreshold; }
+  public final void ngramThreshold(int ngramThreshold) {
+    assert ngramThreshold >= 0 : "ngramThreshold";
+    this.ngramThreshold = ngramThreshold;
+    this.pairs = ngramThreshold > 0 ? new double[4 * actionCount * actionCount] : null;
+  }
+
+  /**
+   * The mean that is assumed for actions that have not been taken yet; 0 by default.
+   */
+  public final double initialValue() { return initialValue; }
+  public final void initialValue(double initialValue) { this.initialValue = initialValue; }
+
+  /**
+   * Scales the visits and rewards of every action by the given factor in [0,1]; 0 forgets all averages.
+   */
+  public final void decay(double factor) {
+    assert factor >= 0 && factor <= 1 : "factor";
+    scale(table, factor);
+    if (pairs != null) {
+      scale(pairs, factor);
+    }
+  }
+
+  private static void scale(double[] table, double factor) {
+    if (factor == 0) {
+      Arrays.fill(table, 0);
+    } else {
+      for (var i = 0; i < table.length; i++) table[i] *= factor;
+    }
+  }
+
+  /**
+   * Returns the mean reward recorded for the action with the given code, taken by the given player.
+   */
+  public final double mean(int code, int player) {
+    var i = 2 * (code << 1 | player);
+    return table[i] > 0 ? table[i + 1] / table[i] : initialValue;
+  }
+
+  /**
+   * Returns the code of the given action.
+   */
+  final int code(ActionType action) {
+    return actionCode.applyAsInt(action);
+  }
+
+  private double[] weights = new double[16];
+
+  /**
+   * Chooses one of the given actions for the given player, following the action with the given code, or -1 if there
+   * is no previous action.
+   */
+  final ActionType select(Set<ActionType> actions, int previous, int player, RandomSource random) {
+    if (epsilon > 0 && random.nextDouble() < epsilon) {
+      return random.choose(actions);
+    }
+    if (weights.length < actions.size()) {
+      weights = new double[actions.size() * 2];
+    }
+    var i = 0;
+    var best = Double.NEGATIVE_INFINITY;
+    for (var action:actions) {
+      var score = score(code(action), previous, player);
+      weights[i++] = score;
+      best = max(best, score);
+    }
+    if (temperature > 0) {
+      var total = 0.0;
+      for (var j = 0; j < i; j++) {
+        total += weights[j] = exp((weights[j] - best) / temperature);
+      }
+      var draw = random.nextDouble() * total;
+      i = 0;
+      ActionType chosen = null;
+      for (var action:actions) {
+        chosen = action;
+        draw -= weights[i++];
+        if (draw < 0) break;
+      }
+      return chosen;
+    }
+    // greedy, breaking ties uniformly
+    var ties = 0;
+    for (var j = 0; j < i; j++) {
+      if (weights[j] == best) ties++;
+    }
+    var pick = ties > 1 ? random.nextInt(ties) : 0;
+    i = 0;
+    for (var action:actions) {
+      if (weights[i++] == best && pick-- == 0) return action;
+    }
+    throw new IllegalStateException("No action to choose");
+  }
+
+  private double score(int code, int previous, int player) {
+    var mean = mean(code, player);
+    if (pairs == null || previous < 0) {
+      return mean;
+    }
+    var i = 2 * ((previous * actionCount + code) << 1 | player);
+    return pairs[i] >= ngramThreshold ? (mean + pairs[i + 1] / pairs[i]) / 2 : mean;
+  }
+
+  /**
+   * Credits the reward, scored from the point of view of player 0, to every action of an iteration. The trajectory
+   * holds entries `code << 1 | player`: first the actions of the rollout in the order they were taken, then those of
+   * the tree from the leaf up to the root.
+   */
+  final void update(int[] trajectory, int rolloutLength, int length, double reward) {
+    var previous = -1;
+    for (var k = 0; k < length; k++) {
+      var entry = trajectory[k < length - rolloutLength ? length - 1 - k : k - (length - rolloutLength)];
+      var code = entry >>> 1;
+      var player = entry & 1;
+      var credit = player != 0 ? -reward : reward;
+      var i = 2 * entry;
+      table[i] += 1;
+      table[i + 1] += credit;
+      if (pairs != null && previous >= 0) {
+        var p = 2 * ((previous * actionCount + code) << 1 | player);
+        pairs[p] += 1;
+        pairs[p + 1] += credit;
+      }
+      previous = code;
+    }
+  }
+
+}
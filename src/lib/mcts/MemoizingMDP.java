@@ -0,0 +1,138 @@
+package lib.mcts;
+
+import java.util.Set;
+
+/**
+ * A [MDP] decorator that remembers the results of [actions] and [isTerminal] for recently seen states.
+ *
+ * Solvers ask for the actions and terminality of the same states many times, e.g. when [GenericSolver] replays the
+ * path from the root on every iteration. For MDPs where these are expensive (such as full board scans) the wrapped MDP
+ * is then only consulted once per state for as long as the state stays in the cache.
+ *
+ * The cache is a direct-mapped table: each state hashes to a single slot, and a state that maps to an occupied slot
+ * replaces its previous occupant. States are matched either by identity, which is cheapest and suits solvers that keep
+ * states in their nodes, or by `hashCode` and `equals`, which also matches equal states reached along different paths.
+ * The action sets returned are shared and must not be modified. All other methods delegate to the wrapped MDP.
+ *
+ * The [AdversarialMDP], [SemiMDP], [BatchMDP] and [DeterministicMDP] extensions of the wrapped MDP are forwarded
+ * through [extension]. A [MutableMDP] is refused, since states updated in place would leave stale entries in the
+ * cache, and so is a [ChanceMDP], whose chance nodes a decorator could not forward to a [ChanceSolver].
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the wrapped [MDP], the number of cache slots and whether states are matched by identity.
+ */
+public final class MemoizingMDP<StateType, ActionType> implements MDP<StateType, ActionType> {
+
+  public MemoizingMDP(MDP<StateType, ActionType> mdp, int capacity, boolean identity) {
+    assert mdp != null : "mdp";
+    assert capacity > 0 : "capacity";
+    if (mdp.extension(MutableMDP.class) != null || mdp.extension(ChanceMDP.class) != null) {
+      throw new IllegalStateException("Cannot memoize a mutable or chance MDP");
+    }
+    this.mdp = mdp;
+    this.identity = identity;
+    var length = Integer.highestOneBit(capacity);
+    length = length < capacity ? length << 1 : length;
+    this.mask = length - 1;
+    this.states = new Object[length];
+    this.actions = new Set<?>[length];
+    this.terminal = new byte[length];
+  }
+
+  private final MDP<StateType, ActionType> mdp;
+  private final boolean identity;
+  private final int mask;
+
+  private final Object[] states;
+  private final Set<?>[] actions;
+  private final byte[] terminal; // 0 = unknown, 1 = false, 2 = true
+
+  private long hits;
+  private long misses;
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+
+  /**
+   * The number of calls to [actions] and [isTerminal] that were answered from the cache.
+   */
+  public final long hits() { return hits; }
+
+  /**
+   * The number of calls to [actions] and [isTerminal] that were passed on to the wrapped MDP.
+   */
+  public final long misses() { return misses; }
+
+  @Override
+  public StateType transition(StateType state, ActionType action) {
+    return mdp.transition(state, action);
+  }
+
+  @Override
+  public StateType transition(StateType state, ActionType action, RandomSource random) {
+    return mdp.transition(state, action, random);
+  }
+
+  @Override
+  public double reward(StateType previousState, ActionType action, StateType state) {
+    return mdp.reward(previousState, action, state);
+  }
+
+  @Override
+  public StateType initialState() {
+    return mdp.initialState();
+  }
+
+  @Override
+  public boolean isTerminal(StateType state) {
+    var i = slot(state);
+    if (terminal[i] == 0) {
+      misses++;
+      terminal[i] = mdp.isTerminal(state) ? (byte)2 : (byte)1;
+    } else {
+      hits++;
+    }
+    return terminal[i] == 2;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Set<ActionType> actions(StateType state) {
+    var i = slot(state);
+    if (actions[i] == null) {
+      misses++;
+      actions[i] = mdp.actions(state);
+    } else {
+      hits++;
+    }
+    return (Set<ActionType>) actions[i];
+  }
+
+  @Override
+  public <T> T extension(Class<T> type) {
+    if (type == AdversarialMDP.class || type == SemiMDP.class || type == BatchMDP.class || type == DeterministicMDP.class) {
+      return mdp.extension(type);
+    }
+    return MDP.super.extension(type);
+  }
+
+  // Utilities
+
+  /**
+   * Returns the slot for the given state, claiming it for the state if it holds another one.
+   */
+  private int slot(StateType state) {
+    assert state != null : "state";
+    var h = (identity ? System.identityHashCode(state) : state.hashCode()) * 0x9e3779b9;
+    var i = (h ^ (h >>> 16)) & mask;
+    var cached = states[i];
+    if (cached != state && (identity || cached == null || !cached.equals(state))) {
+      states[i] = state;
+      actions[i] = null;
+      terminal[i] = 0;
+    }
+    return i;
+  }
+
+}
@@ -0,0 +1,45 @@
+package lib.mcts;
+
+/**
+ * The running mean and variance of the rewards backed up through a node, kept by Welford's method.
+ *
+ * These statistics are attached to nodes by the [SelectionPolicy] instances that need the variance of the rewards and
+ * not only their sum.
+ */
+public final class Moments {
+
+  private long count;
+  private double mean;
+  private double m2;
+
+  /**
+   * The number of rewards recorded.
+   */
+  public final long count() { return count; }
+
+  /**
+   * The mean of the rewards recorded.
+   */
+  public final double mean() { return mean; }
+
+  /**
+   * The population variance of the rewards recorded, or 0 if fewer than two were recorded.
+   */
+  public final double variance() { return count > 1 ? m2 / count : 0; }
+
+  /**
+   * Records a reward.
+   */
+  public final void add(double reward) {
+    count++;
+    var delta = reward - mean;
+    mean += delta / count;
+    m2 += delta * (reward - mean);
+  }
+
+  @Override
+  public String toString() {
+    return "Mean: %.5f, Variance: %.5f".formatted(mean, variance());
+  }
+
+}
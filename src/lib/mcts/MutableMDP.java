@@ -0,0 +1,27 @@
+package lib.mcts;
+
+/**
+ * A [MDP] whose states can be updated in place.
+ *
+ * Solvers use this contract during rollouts: instead of creating a new state for every step they apply the actions to
+ * the state the rollout starts from and undo them all, in reverse order, when the rollout ends. Rollouts then create no
+ * garbage for the states themselves. During such a rollout [reward] is called with a null previous state.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface MutableMDP<StateType, ActionType> extends MDP<StateType, ActionType> {
+
+  /**
+   * Applies the action to the given state in place, drawing any randomness from the given source. The return value is
+   * a token that [undo] uses to restore the state as it was before.
+   */
+  long apply(StateType state, ActionType action, RandomSource random);
+
+  /**
+   * Reverts the given state in place, given the action and the token returned when the action was applied. Actions
+   * are undone in the reverse order of their application.
+   */
+  void undo(StateType state, ActionType action, long token);
+
+}
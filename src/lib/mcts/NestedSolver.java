@@ -0,0 +1,375 @@
+package lib.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.ToIntBiFunction;
+
+import static java.lang.Math.*;
+
+/**
+ * A solver for single-player Markov Decision Processes (MDP) by Nested Rollout Policy Adaptation (NRPA) and Nested
+ * Monte Carlo search (NMC).
+ *
+ * Both searches look for the best sequence of actions from the initial state rather than building a tree. NRPA learns a
+ * rollout policy: at each level it repeatedly runs the search one level down with a copy of its policy, and adapts its
+ * policy towards the best sequence found so far; level 0 is a rollout with the policy. The policy is a table of
+ * weights indexed by action codes, which may depend on the state, so that actions are taken with probability
+ * proportional to `exp(weight)`. NMC instead plays the best sequence found so far one action at a time, trying every
+ * action at each step with a search one level down; level 0 is a rollout with the [rolloutPolicy].
+ *
+ * A sequence is scored by the reward of its final transition, discounted by its length, once it reaches a terminal
+ * state or [simulationDepthLimit] actions.
+ *
+ * Both searches need a deterministic MDP, in which a sequence of actions always leads to the same states, and so only
+ * accept a [DeterministicMDP]. In a stochastic MDP the best sequence is only best for the outcomes it happened to meet,
+ * so its first action is no sound move; search such an MDP with a tree solver or an [EnsembleSolver] instead, or
+ * search one [DeterminizedMDP] of it. As a safeguard the transitions of a search still draw from a source seeded by a
+ * scenario drawn at the start of the search and by the depth of the transition, so that a sequence replays
+ * consistently within a search.
+ *
+ * At the top level, the searches one level down run in parallel on the common [java.util.concurrent.ForkJoinPool]:
+ * NMC searches the actions of each step in parallel, and NRPA runs [parallelism] searches with copies of its policy
+ * in each iteration, keeping the best. The MDP must then be safe for use by several threads.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [DeterministicMDP], the function that gives the code of an action in a state, the number
+ * of action codes, a depth limit for sequences, a reward discount factor and a verbosity flag.
+ */
+public class NestedSolver<StateType, ActionType> {
+
+  public NestedSolver(MDP<StateType, ActionType> mdp, ToIntBiFunction<StateType, ActionType> actionCode, int actionCount, int simulationDepthLimit, double rewardDiscountFactor, boolean verbose) {
+    assert mdp != null : "mdp";
+    assert actionCode != null : "actionCode";
+    assert actionCount > 0 : "actionCount";
+    if (mdp.extension(DeterministicMDP.class) == null) {
+      throw new IllegalStateException("Nested search requires a DeterministicMDP");
+    }
+    this.mdp = mdp;
+    this.actionCode = actionCode;
+    this.actionCount = actionCount;
+    this.simulationDepthLimit = simulationDepthLimit;
+    this.rewardDiscountFactor = rewardDiscountFactor;
+    this.verbose = verbose;
+  }
+
+  private final MDP<StateType, ActionType> mdp;
+  private final ToIntBiFunction<StateType, ActionType> actionCode;
+  private final int actionCount;
+  private final int simulationDepthLimit;
+  private final double rewardDiscountFactor;
+  private final boolean verbose;
+  private final ThreadLocal<RandomSource> transitions = ThreadLocal.withInitial(RandomSource::reseedable);
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+  public final int actionCount() { return actionCount; }
+  public final int simulationDepthLimit() { return simulationDepthLimit; }
+  public final double rewardDiscountFactor() { return rewardDiscountFactor; }
+
+  private RandomSource random = RandomSource.create();
+
+  /**
+   * The source of randomness used by this solver; worker threads get sources split from it.
+   */
+  public final RandomSource random() { return random; }
+  public final void random(RandomSource random) {
+    assert random != null : "random";
+    this.random = random;
+  }
+
+  private int parallelism = 1;
+
+  /**
+   * The number of searches NRPA runs in parallel in each iteration of the top level; 1 to run sequentially.
+   */
+  public final int parallelism() { return parallelism; }
+  public final void parallelism(int parallelism) {
+    assert parallelism > 0 : "parallelism";
+    this.parallelism = parallelism;
+  }
+
+  private double learningRate = 1.0;
+
+  /**
+   * The step by which NRPA adapts its policy towards the best sequence.
+   */
+  public final double learningRate() { return learningRate; }
+  public final void learningRate(double learningRate) {
+    assert learningRate > 0 : "learningRate";
+    this.learningRate = learningRate;
+  }
+
+  private RolloutPolicy<StateType, ActionType> rolloutPolicy = RolloutPolicy.uniform();
+
+  /**
+   * The policy of the level 0 rollouts of NMC; uniformly random by default.
+   */
+  public final RolloutPolicy<StateType, ActionType> rolloutPolicy() { return rolloutPolicy; }
+  public final void rolloutPolicy(RolloutPolicy<StateType, ActionType> rolloutPolicy) {
+    assert rolloutPolicy != null : "rolloutPolicy";
+    this.rolloutPolicy = rolloutPolicy;
+  }
+
+  private Sequence<ActionType> best;
+  private double[] policy;
+
+  /**
+   * The best sequence of actions found by the last search.
+   */
+  public final List<ActionType> bestSequence() {
+    return best != null ? best.actions : List.of();
+  }
+
+  /**
+   * The score of the best sequence found by the last search.
+   */
+  public final double bestScore() {
+    return best != null ? best.score : Double.NEGATIVE_INFINITY;
+  }
+
+  /**
+   * The policy weights learned by the top level of the last NRPA search, indexed by action code.
+   */
+  public final double[] policy() {
+    return policy;
+  }
+
+  /**
+   * Returns the first action of the best sequence, or null if there is none.
+   */
+  public ActionType extractOptimalAction() {
+    var actions = bestSequence();
+    return actions.isEmpty() ? null : actions.get(0);
+  }
+
+  // NRPA
+
+  /**
+   * Runs NRPA at the given level, with the given number of iterations per level, and returns the best score.
+   */
+  public final double runNRPA(int level, int iterations) {
+    assert level > 0 : "level";
+    assert iterations > 0 : "iterations";
+    var scenario = random.nextLong();
+    policy = new double[actionCount];
+    best = nrpa(level, iterations, policy, random, scenario, true);
+    return best.score;
+  }
+
+  private Sequence<ActionType> nrpa(int level, int iterations, double[] policy, RandomSource random, long scenario, boolean top) {
+    if (level == 0) {
+      return playout(policy, random, scenario);
+    }
+
+    Sequence<ActionType> best = null;
+    for (var i = 0; i < iterations; i++) {
+      Sequence<ActionType> result;
+      if (top && parallelism > 1) {
+        var tasks = new ArrayList<ForkJoinTask<Sequence<ActionType>>>(parallelism);
+        for (var p = 0; p < parallelism; p++) {
+          var copy = policy.clone();
+          var split = random.split();
+          tasks.add(ForkJoinTask.adapt(() -> nrpa(level - 1, iterations, copy, split, scenario, false)));
+        }
+        result = bestOf(tasks);
+      } else {
+        result = nrpa(level - 1, iterations, policy.clone(), random, scenario, false);
+      }
+
+      if (best == null || result.score >= best.score) {
+        best = result;
+        if (top && verbose) {
+          System.out.println("Iteration " + i + ": " + best);
+        }
+      }
+      adapt(policy, best.actions, scenario);
+    }
+    return best;
+  }
+
+  /**
+   * Runs a rollout from the initial state, choosing actions with probabilities proportional to `exp(weight)`.
+   */
+  private Sequence<ActionType> playout(double[] policy, RandomSource random, long scenario) {
+    var state = mdp.initialState();
+    var actions = new ArrayList<ActionType>();
+    var weights = new double[8];
+
+    for (var depth = 0;; depth++) {
+      var validActions = mdp.actions(state);
+      if (weights.length < validActions.size()) {
+        weights = new double[validActions.size() * 2];
+      }
+      var total = 0.0;
+      var i = 0;
+      for (var action:validActions) {
+        total += weights[i++] = exp(policy[actionCode.applyAsInt(state, action)]);
+      }
+      var u = random.nextDouble() * total;
+      ActionType chosen = null;
+      i = 0;
+      for (var action:validActions) {
+        chosen = action;
+        if ((u -= weights[i++]) < 0) break;
+      }
+
+      var newState = transition(state, chosen, depth, scenario);
+      actions.add(chosen);
+      if (mdp.isTerminal(newState) || depth + 1 >= simulationDepthLimit) {
+        return new Sequence<>(score(state, chosen, newState, depth + 1), actions);
+      }
+      state = newState;
+    }
+  }
+
+  /**
+   * Raises the weights of the actions of the sequence and lowers those of all valid actions in proportion to their
+   * probabilities under the policy as it was before.
+   */
+  private void adapt(double[] policy, List<ActionType> sequence, long scenario) {
+    var previous = policy.clone();
+    var state = mdp.initialState();
+    var depth = 0;
+    for (var action:sequence) {
+      var validActions = mdp.actions(state);
+      var total = 0.0;
+      for (var a:validActions) {
+        total += exp(previous[actionCode.applyAsInt(state, a)]);
+      }
+      for (var a:validActions) {
+        var code = actionCode.applyAsInt(state, a);
+        policy[code] -= learningRate * exp(previous[code]) / total;
+      }
+      policy[actionCode.applyAsInt(state, action)] += learningRate;
+      state = transition(state, action, depth++, scenario);
+    }
+  }
+
+  // NMC
+
+  /**
+   * Runs NMC at the given level and returns the best score.
+   */
+  public final double runNestedMonteCarlo(int level) {
+    assert level > 0 : "level";
+    var scenario = random.nextLong();
+    var initialState = mdp.initialState();
+    best = mdp.isTerminal(initialState) ? null : nmc(level, initialState, 0, random, scenario, true);
+    return bestScore();
+  }
+
+  private Sequence<ActionType> nmc(int level, StateType state, int depth, RandomSource random, long scenario, boolean top) {
+    if (level == 0) {
+      return rollout(state, depth, random, scenario);
+    }
+
+    Sequence<ActionType> best = null;
+    var played = new ArrayList<ActionType>();
+    while (!mdp.isTerminal(state) && depth < simulationDepthLimit) {
+      var validActions = mdp.actions(state);
+      var currentState = state;
+      var currentDepth = depth;
+
+      Sequence<ActionType> result;
+      if (top && validActions.size() > 1) {
+        var tasks = new ArrayList<ForkJoinTask<Sequence<ActionType>>>(validActions.size());
+        for (var action:validActions) {
+          var split = random.split();
+          tasks.add(ForkJoinTask.adapt(() -> step(level, currentState, action, currentDepth, split, scenario)));
+        }
+        result = bestOf(tasks);
+      } else {
+        result = null;
+        for (var action:validActions) {
+          var candidate = step(level, currentState, action, currentDepth, random, scenario);
+          if (result == null || candidate.score > result.score) result = candidate;
+        }
+      }
+
+      if (best == null || result.score > best.score) {
+        var actions = new ArrayList<ActionType>(played);
+        actions.addAll(result.actions);
+        best = new Sequence<>(result.score, actions);
+        if (top && verbose) {
+          System.out.println("Depth " + depth + ": " + best);
+        }
+      }
+
+      // Follow the best sequence
+      var action = best.actions.get(played.size());
+      state = transition(state, action, depth++, scenario);
+      played.add(action);
+    }
+    return best;
+  }
+
+  /**
+   * Takes the action and searches on from the new state one level down. Returns the sequence from the given state.
+   */
+  private Sequence<ActionType> step(int level, StateType state, ActionType action, int depth, RandomSource random, long scenario) {
+    var newState = transition(state, action, depth, scenario);
+    if (mdp.isTerminal(newState) || depth + 1 >= simulationDepthLimit) {
+      return new Sequence<>(score(state, action, newState, depth + 1), List.of(action));
+    }
+    var rest = nmc(level - 1, newState, depth + 1, random, scenario, false);
+    var actions = new ArrayList<ActionType>(rest.actions.size() + 1);
+    actions.add(action);
+    actions.addAll(rest.actions);
+    return new Sequence<>(rest.score, actions);
+  }
+
+  /**
+   * Runs a rollout with the [rolloutPolicy] from the given non-terminal state.
+   */
+  private Sequence<ActionType> rollout(StateType state, int depth, RandomSource random, long scenario) {
+    var actions = new ArrayList<ActionType>();
+    for (;; depth++) {
+      var action = rolloutPolicy.select(state, mdp.actions(state), random);
+      var newState = transition(state, action, depth, scenario);
+      actions.add(action);
+      if (mdp.isTerminal(newState) || depth + 1 >= simulationDepthLimit) {
+        return new Sequence<>(score(state, action, newState, depth + 1), actions);
+      }
+      state = newState;
+    }
+  }
+
+  // Utilities
+
+  /**
+   * Takes the action at the given depth of a sequence, drawing from a source that depends only on the scenario and
+   * the depth. The source is reused by the calls made on the same thread, so none is allocated per transition.
+   */
+  private StateType transition(StateType state, ActionType action, int depth, long scenario) {
+    var random = transitions.get();
+    random.reseed(RandomSource.mix(scenario + depth * 0x9E3779B97F4A7C15L));
+    return mdp.transition(state, action, random);
+  }
+
+  private double score(StateType previousState, ActionType action, StateType state, int length) {
+    return mdp.reward(previousState, action, state) * pow(rewardDiscountFactor, length);
+  }
+
+  /**
+   * Runs the tasks in parallel and returns the best of their sequences, the first one on ties.
+   */
+  private static <A> Sequence<A> bestOf(List<ForkJoinTask<Sequence<A>>> tasks) {
+    ForkJoinTask.invokeAll(tasks);
+    Sequence<A> best = null;
+    for (var task:tasks) {
+      var result = task.join();
+      if (best == null || result.score > best.score) best = result;
+    }
+    return best;
+  }
+
+  private record Sequence<A>(double score, List<A> actions) {
+    @Override
+    public String toString() {
+      return "%.5f %s".formatted(score, actions);
+    }
+  }
+
+}
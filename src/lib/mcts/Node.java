@@ -25,7 +25,7 @@ public interface Node<ActionType, SelfType extends Node<ActionType, SelfType>> {
   /**
    * The number of visits to the node.
    */
-  int n();
+  long n();
 
   /**
    * The reward value of the node.
@@ -0,0 +1,77 @@
+package lib.mcts;
+
+/**
+ * The optional statistics of a node, kept in a single field of the node so that nodes carry only what the features of
+ * their search need.
+ *
+ * The field holds null when no feature is on, the statistics of the [SelectionPolicy] themselves when they are all
+ * there is, and a [NodeExtras] once the node also has a prior, AMAF statistics or a duration other than one. The
+ * static methods read and update such a field.
+ */
+final class NodeExtras {
+
+  private NodeExtras(Object statistics) {
+    this.statistics = statistics;
+  }
+
+  private Object statistics;
+  private double prior;
+  private double[] amaf;
+  private int duration = 1;
+
+  static Object statistics(Object extras) {
+    return extras instanceof NodeExtras e ? e.statistics : extras;
+  }
+
+  static Object statistics(Object extras, Object statistics) {
+    if (extras instanceof NodeExtras e) {
+      e.statistics = statistics;
+      return e;
+    }
+    return statistics;
+  }
+
+  static double prior(Object extras) {
+    return extras instanceof NodeExtras e ? e.prior : 0;
+  }
+
+  static Object prior(Object extras, double prior) {
+    if (prior == 0 && !(extras instanceof NodeExtras)) {
+      return extras;
+    }
+    var e = of(extras);
+    e.prior = prior;
+    return e;
+  }
+
+  static double[] amaf(Object extras) {
+    return extras instanceof NodeExtras e ? e.amaf : null;
+  }
+
+  static Object amaf(Object extras, double[] amaf) {
+    if (amaf == null && !(extras instanceof NodeExtras)) {
+      return extras;
+    }
+    var e = of(extras);
+    e.amaf = amaf;
+    return e;
+  }
+
+  static int duration(Object extras) {
+    return extras instanceof NodeExtras e ? e.duration : 1;
+  }
+
+  static Object duration(Object extras, int duration) {
+    if (duration == 1 && !(extras instanceof NodeExtras)) {
+      return extras;
+    }
+    var e = of(extras);
+    e.duration = duration;
+    return e;
+  }
+
+  private static NodeExtras of(Object extras) {
+    return extras instanceof NodeExtras e ? e : new NodeExtras(extras);
+  }
+
+}
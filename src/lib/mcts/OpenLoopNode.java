@@ -0,0 +1,77 @@
+package lib.mcts;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+/**
+ * A representation of nodes used by the [OpenLoopSolver] to solve a Markov Decision Process (MDP).
+ *
+ * An open-loop node stands for the sequence of actions leading to it from the root and holds only its statistics; no
+ * state is kept. The actions available at a node depend on the state sampled in each iteration and are therefore not
+ * stored either.
+ *
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [OpenLoopNode] that represents the parent node and an [ActionType] that represents the
+ * action taken to reach the current node.
+ */
+public final class OpenLoopNode<ActionType> extends AbstractNode<ActionType, OpenLoopNode<ActionType>> {
+
+  public OpenLoopNode(OpenLoopNode<ActionType> parent, ActionType inducingAction) {
+    super(parent, inducingAction);
+  }
+
+  private List<OpenLoopNode<ActionType>> children;
+
+  @Override
+  public void addChild(OpenLoopNode<ActionType> child) {
+    if (children == null) {
+      children = new ArrayList<>(2);
+    }
+    children.add(child);
+  }
+
+  @Override
+  public Collection<OpenLoopNode<ActionType>> children() {
+    return children != null ? children : Collections.emptyList();
+  }
+
+  @Override
+  public Collection<OpenLoopNode<ActionType>> children(ActionType action) {
+    assert action != null;
+    var child = child(action);
+    return child == null ? Collections.emptyList() : List.of(child);
+  }
+
+  /**
+   * Returns the child reached by the given action, or null if there is none.
+   */
+  public final OpenLoopNode<ActionType> child(ActionType action) {
+    if (children != null) {
+      for (var child:children) {
+        if (child.inducingAction().equals(action)) return child;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The actions taken at least once from this node; the actually valid actions depend on the sampled state.
+   */
+  @Override
+  public Set<ActionType> validActions() {
+    var actions = new LinkedHashSet<ActionType>();
+    for (var child:children()) actions.add(child.inducingAction());
+    return actions;
+  }
+
+  @Override
+  public String toString() {
+    return "Action: %s, Max Reward: %.5f".formatted(inducingAction(),maxReward());
+  }
+
+}
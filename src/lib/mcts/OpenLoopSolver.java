@@ -0,0 +1,238 @@
+package lib.mcts;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * An open-loop solver for a Markov Decision Process (MDP).
+ *
+ * The nodes of the tree stand for sequences of actions and hold only statistics. In each iteration a fresh state is
+ * sampled along the selected path, starting from the initial state, so the statistics of a node average over the
+ * outcomes of the stochastic transitions leading to it. No state is kept in the tree, which keeps nodes small and
+ * allows far larger budgets; for deterministic MDPs the search is the same as with the [GenericSolver].
+ *
+ * The state of the current iteration lives in a scratch state owned by the solver. If the MDP is a [MutableMDP] the
+ * actions along the path are applied to the scratch state in place and undone at the end of the iteration, so that a
+ * single state serves every iteration; such an MDP must return a new state from each call to [MDP.initialState]. As
+ * the scratch state cannot key a [RolloutCache], such a solver takes none.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in a [MDP], a depth limit for simulations, a exploration constant, a reward discount factor
+ * and a verbosity flag.
+ */
+public class OpenLoopSolver<StateType, ActionType> extends AbstractMDPSolver<StateType, ActionType, OpenLoopNode<ActionType>> {
+
+  @SuppressWarnings("unchecked")
+  public OpenLoopSolver(MDP<StateType, ActionType> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
+    super(mdp, simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
+    this.mutable = mdp.extension(MutableMDP.class);
+    this.initialState = mdp.initialState();
+    this.root = new OpenLoopNode<>(null, null);
+    this.root.player(playerToMove(initialState));
+  }
+
+  private final MutableMDP<StateType, ActionType> mutable;
+  private final StateType initialState;
+
+  private OpenLoopNode<ActionType> root;
+
+  @Override
+  public final OpenLoopNode<ActionType> root() {
+    return root;
+  }
+
+  @Override
+  public final void root(OpenLoopNode<ActionType> root) {
+    assert root != null : "root";
+    this.root = root;
+  }
+
+  // The state sampled for the node at the end of the current path
+  private OpenLoopNode<ActionType> currentNode;
+  private StateType currentState;
+  private StateType previousState;
+  // The discounts of the transitions sampled along the current path, by depth
+  private double[] discounts = new double[16];
+
+  // SOLVER
+
+  @Override
+  protected void runTreeSearchIteration(OpenLoopNode<ActionType> start) {
+    try {
+      super.runTreeSearchIteration(start);
+    } finally {
+      reset();
+    }
+  }
+
+  /**
+   * Samples a state along the path from the root to the given node, then descends by the highest score among the children whose
+   * actions are valid in the sampled states. Returns a node with untried actions or a terminal node.
+   */
+  @Override
+  public OpenLoopNode<ActionType> select(OpenLoopNode<ActionType> node) {
+    assert node != null : "node";
+    replay(node);
+
+    for (;;) {
+      // If the sampled state is terminal or the node at the depth limit, return the node
+      if (mdp.isTerminal(currentState) || atTreeDepthLimit(currentNode)) {
+        return currentNode;
+      }
+
+      var validActions = mdp.actions(currentState);
+      var explored = 0;
+      OpenLoopNode<ActionType> best = null;
+      var bestScore = Double.NEGATIVE_INFINITY;
+      for (var child:currentNode.children()) {
+        if (validActions.contains(child.inducingAction())) {
+          explored++;
+          var score = score(child);
+          if (best == null || score > bestScore) {
+            best = child;
+            bestScore = score;
+          }
+        }
+      }
+
+      // The sampled state has untried actions
+      if (best == null || (validActions.size() > explored && expansionPolicy().expand(explored, currentNode.n()))) {
+        return currentNode;
+      }
+
+      step(best);
+    }
+  }
+
+  @Override
+  public OpenLoopNode<ActionType> expand(OpenLoopNode<ActionType> node) {
+    assert node != null : "node";
+    if (node != currentNode) {
+      replay(node);
+    }
+
+    // If the sampled state is terminal or the node at the depth limit, return the node
+    if (mdp.isTerminal(currentState) || atTreeDepthLimit(node)) {
+      return node;
+    }
+
+    // Expand an action that is valid in the sampled state
+    var actionTaken = untriedAction(currentState, mdp.actions(currentState).stream().filter(a -> node.child(a) == null));
+
+    var newNode = new OpenLoopNode<>(node, actionTaken);
+    initialize(newNode, currentState, actionTaken);
+    node.addChild(newNode);
+    step(newNode);
+    newNode.player(playerToMove(currentState));
+    return newNode;
+  }
+
+  @Override
+  public double simulate(OpenLoopNode<ActionType> node) {
+    assert node != null : "node";
+    if (node != currentNode) {
+      replay(node);
+    }
+    traceln("Simulation:");
+
+    // If state is terminal, the reward is defined by MDP
+    if (mdp.isTerminal(currentState)) {
+      traceln("Terminal state reached");
+      return mdp.reward(previousState, node.inducingAction(), currentState);
+    }
+
+    return estimate(currentState);
+  }
+
+  // Utilities
+
+  /**
+   * Returns the state sampled for the given node in the current iteration; only valid for the end of the current path.
+   */
+  @Override
+  protected final StateType state(OpenLoopNode<ActionType> node) {
+    if (node != currentNode) {
+      replay(node);
+    }
+    return currentState;
+  }
+
+  /**
+   * Whether the MDP is a [MutableMDP], whose actions are applied to the scratch state in place.
+   */
+  @Override
+  protected boolean hasScratchState() {
+    return mutable != null;
+  }
+
+  /**
+   * The number of actions of the initial state; the root of an open-loop tree only lists the actions already taken.
+   */
+  @Override
+  protected int rootActionCount() {
+    return mdp.isTerminal(initialState) ? 0 : mdp.actions(initialState).size();
+  }
+
+  /**
+   * Returns the discount of the transition sampled for the given node in the current iteration.
+   */
+  @Override
+  protected double discount(OpenLoopNode<ActionType> node) {
+    return discounts[node.depth()];
+  }
+
+  @Override
+  protected final boolean isTerminal(OpenLoopNode<ActionType> node) {
+    return mdp.isTerminal(state(node));
+  }
+
+  /**
+   * Samples a new state for the given node by taking the actions leading to it from the initial state.
+   */
+  private void replay(OpenLoopNode<ActionType> node) {
+    reset();
+    var path = new ArrayDeque<OpenLoopNode<ActionType>>();
+    var top = node;
+    for (; top.parent() != null; top = top.parent()) {
+      path.push(top);
+    }
+    currentNode = top;
+    for (var n:path) {
+      step(n);
+    }
+  }
+
+  /**
+   * Moves from the current node to the given child, sampling the transition of its action.
+   */
+  private void step(OpenLoopNode<ActionType> child) {
+    var action = child.inducingAction();
+    if (mutable != null) {
+      apply(mutable, currentState, action);
+    } else {
+      previousState = currentState;
+      currentState = mdp.transition(currentState, action, random());
+    }
+    var depth = child.depth();
+    if (depth >= discounts.length) {
+      discounts = Arrays.copyOf(discounts, depth * 2);
+    }
+    discounts[depth] = discount(currentState);
+    currentNode = child;
+  }
+
+  /**
+   * Returns the scratch state to the initial state, at the root.
+   */
+  private void reset() {
+    if (mutable != null) {
+      undo(mutable, initialState, 0);
+    }
+    currentNode = root;
+    currentState = initialState;
+    previousState = null;
+  }
+
+}
@@ -0,0 +1,54 @@
+package lib.mcts;
+
+import java.util.List;
+
+/**
+ * An option of an [OptionMDP]: a macro-action that takes a sequence of actions of the underlying [MDP], either fixed in
+ * advance or chosen step by step from the states it passes through.
+ *
+ * Options are the actions of the [OptionMDP], so they must implement `equals` and `hashCode` by value, as the
+ * [Sequence] does, or else be the same instances for every state.
+ *
+ * @param StateType the type that represents the states of the underlying MDP.
+ * @param ActionType the type that represents the actions that can be taken in the underlying MDP.
+ */
+@FunctionalInterface
+public interface Option<StateType, ActionType> {
+
+  /**
+   * Returns the action to take in the given state at the given step of the option, counting from 0, or null to end
+   * the option there. The option also ends when the action is not available in the state.
+   */
+  ActionType action(StateType state, int step);
+
+  /**
+   * Returns an option that takes the given action once.
+   */
+  static <StateType, ActionType> Option<StateType, ActionType> primitive(ActionType action) {
+    return sequence(List.of(action));
+  }
+
+  /**
+   * Returns an option that takes the given actions in order, as long as they are available.
+   */
+  static <StateType, ActionType> Option<StateType, ActionType> sequence(List<ActionType> actions) {
+    return new Sequence<>(List.copyOf(actions));
+  }
+
+  /**
+   * An option that takes a fixed sequence of actions.
+   */
+  record Sequence<StateType, ActionType>(List<ActionType> actions) implements Option<StateType, ActionType> {
+
+    public Sequence {
+      assert actions != null && !actions.isEmpty() : "actions";
+    }
+
+    @Override
+    public ActionType action(StateType state, int step) {
+      return step < actions.size() ? actions.get(step) : null;
+    }
+
+  }
+
+}
@@ -0,0 +1,138 @@
+package lib.mcts;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A [MDP] decorator whose actions are the [Option]s of a wrapped MDP, i.e. macro-actions that each run several of its
+ * actions in a single transition.
+ *
+ * A solver searching an option MDP creates nodes only where options start and end, so the depth of the tree and the
+ * number of its nodes fall by the length of the options, which makes long horizons tractable, as when navigating a
+ * large grid. An option is available in a state when its first action is; it runs until it ends, the underlying MDP
+ * reaches a terminal state, or it has taken [durationLimit] actions. The reward of an option is the discounted sum of
+ * the rewards of its transitions, `r_1 + g r_2 + ... + g^(k-1) r_k` for a discount factor `g`, and being a [SemiMDP]
+ * the solvers discount what follows it by `g^k`, so that an option scores the same as the actions it takes would on
+ * their own. The discount factor should be the reward discount factor of the solver. The underlying MDP should be a
+ * single-agent one.
+ *
+ * The states of the option MDP are the states of the wrapped MDP together with the reward and the duration of the
+ * option that led to them; they are equal when the wrapped states are.
+ *
+ * @param StateType the type that represents the states of the wrapped MDP.
+ * @param ActionType the type that represents the actions that can be taken in the wrapped MDP.
+ *
+ * The constructor takes in the wrapped [MDP], a function returning the options for a state, from which those that are
+ * not available are dropped, the greatest number of actions taken by an option and the reward discount factor.
+ */
+public final class OptionMDP<StateType, ActionType> implements SemiMDP<OptionMDP.State<StateType>, Option<StateType, ActionType>> {
+
+  public OptionMDP(MDP<StateType, ActionType> mdp, Function<StateType, ? extends Collection<Option<StateType, ActionType>>> options, int durationLimit, double rewardDiscountFactor) {
+    assert mdp != null : "mdp";
+    this.mdp = mdp;
+    assert options != null : "options";
+    this.options = options;
+    assert durationLimit > 0 : "durationLimit";
+    this.durationLimit = durationLimit;
+    this.rewardDiscountFactor = rewardDiscountFactor;
+  }
+
+  private final MDP<StateType, ActionType> mdp;
+  private final Function<StateType, ? extends Collection<Option<StateType, ActionType>>> options;
+  private final int durationLimit;
+  private final double rewardDiscountFactor;
+
+  public final MDP<StateType, ActionType> mdp() { return mdp; }
+  public final int durationLimit() { return durationLimit; }
+  public final double rewardDiscountFactor() { return rewardDiscountFactor; }
+
+  /**
+   * A state of the wrapped MDP reached by an option, with the discounted reward of the option and the number of actions
+   * it took.
+   */
+  public record State<StateType>(StateType state, double reward, int duration) {
+
+    public State {
+      assert state != null : "state";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof State<?> other && state.equals(other.state);
+    }
+
+    @Override
+    public int hashCode() {
+      return state.hashCode();
+    }
+
+  }
+
+  @Override
+  public State<StateType> initialState() {
+    return new State<>(mdp.initialState(), 0, 0);
+  }
+
+  @Override
+  public boolean isTerminal(State<StateType> state) {
+    return mdp.isTerminal(state.state());
+  }
+
+  @Override
+  public double reward(State<StateType> previousState, Option<StateType, ActionType> option, State<StateType> state) {
+    return state.reward();
+  }
+
+  @Override
+  public int duration(State<StateType> state) {
+    return state.duration();
+  }
+
+  @Override
+  public Set<Option<StateType, ActionType>> actions(State<StateType> state) {
+    var actions = mdp.actions(state.state());
+    var available = new LinkedHashSet<Option<StateType, ActionType>>();
+    for (var option:options.apply(state.state())) {
+      var action = option.action(state.state(), 0);
+      if (action != null && actions.contains(action)) {
+        available.add(option);
+      }
+    }
+    return available;
+  }
+
+  @Override
+  public State<StateType> transition(State<StateType> state, Option<StateType, ActionType> option) {
+    return run(state.state(), option, null);
+  }
+
+  @Override
+  public State<StateType> transition(State<StateType> state, Option<StateType, ActionType> option, RandomSource random) {
+    return run(state.state(), option, random);
+  }
+
+  /**
+   * Runs the option from the given state, drawing from the given source, or from the wrapped MDP's own if it is null.
+   */
+  private State<StateType> run(StateType state, Option<StateType, ActionType> option, RandomSource random) {
+    var reward = 0.0;
+    var discount = 1.0;
+    var step = 0;
+    while (step < durationLimit && !mdp.isTerminal(state)) {
+      var action = option.action(state, step);
+      if (action == null || !mdp.actions(state).contains(action)) break;
+      var next = random != null ? mdp.transition(state, action, random) : mdp.transition(state, action);
+      reward += mdp.reward(state, action, next) * discount;
+      discount *= rewardDiscountFactor;
+      state = next;
+      step++;
+    }
+    if (step == 0) {
+      throw new IllegalStateException("Option not available: " + option);
+    }
+    return new State<>(state, reward, step);
+  }
+
+}
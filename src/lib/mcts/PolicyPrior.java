@@ -0,0 +1,21 @@
+package lib.mcts;
+
+/**
+ * A prior policy over the actions of a [MDP], such as the move probabilities of a trained network, which weights the
+ * exploration of the actions in [SelectionPolicy.puct].
+ *
+ * Unlike an [ActionPrior], which estimates the value of an action on the scale of the rewards, a policy prior says how
+ * likely the action is to be the best one: the probabilities of the actions of a state lie in [0,1] and sum to 1.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+@FunctionalInterface
+public interface PolicyPrior<StateType, ActionType> {
+
+  /**
+   * The probability of taking the action in the state.
+   */
+  double probability(StateType state, ActionType action);
+
+}
@@ -0,0 +1,107 @@
+package lib.mcts;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.ConcurrentModificationException;
+import java.util.random.RandomGenerator;
+
+/**
+ * A source of random numbers for solvers, policies and MDPs.
+ *
+ * Each instance wraps a [SplittableRandom] and is meant to be confined to a single thread; a worker thread should be
+ * handed its own source obtained through [split]. Since no state is shared between sources, parallel runs do not
+ * contend on a common seed, and a run started from a given seed is reproducible.
+ */
+public final class RandomSource implements RandomGenerator {
+
+  private RandomSource(SplittableRandom random) {
+    this.random = random;
+  }
+
+  private final SplittableRandom random;
+  private long state;
+
+  private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Returns a source seeded with the given value.
+   */
+  public static RandomSource of(long seed) {
+    return new RandomSource(new SplittableRandom(seed));
+  }
+
+  /**
+   * Returns a source with an arbitrary seed.
+   */
+  public static RandomSource create() {
+    return new RandomSource(new SplittableRandom());
+  }
+
+  /**
+   * Returns a source whose seed is set again by every call to [reseed], so that a stream derived from a seed can be
+   * drawn without allocating a new source. It draws from a splitmix64 sequence of its own.
+   */
+  static RandomSource reseedable() {
+    return new RandomSource(null);
+  }
+
+  /**
+   * Restarts a source created by [reseedable] from the given seed.
+   */
+  void reseed(long seed) {
+    assert random == null : "reseedable";
+    state = seed;
+  }
+
+  /**
+   * The splitmix64 finalizer: a stateless mix of the bits of the given value.
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Returns a new source that is statistically independent of this one; typically one per worker thread.
+   */
+  public RandomSource split() {
+    return random != null ? new RandomSource(random.split()) : of(nextLong());
+  }
+
+  @Override
+  public long nextLong() { return random != null ? random.nextLong() : mix(state += GAMMA); }
+
+  @Override
+  public int nextInt() { return random != null ? random.nextInt() : (int)(nextLong() >>> 32); }
+
+  @Override
+  public int nextInt(int bound) { return random != null ? random.nextInt(bound) : RandomGenerator.super.nextInt(bound); }
+
+  @Override
+  public double nextDouble() { return random != null ? random.nextDouble() : RandomGenerator.super.nextDouble(); }
+
+  @Override
+  public boolean nextBoolean() { return random != null ? random.nextBoolean() : nextInt() < 0; }
+
+  /**
+   * Returns a uniformly chosen element of the given collection.
+   */
+  public <T> T choose(Collection<? extends T> items) {
+    assert items != null : "items";
+    var size = items.size();
+    if (size == 0) {
+      throw new IllegalArgumentException("Cannot choose from an empty collection");
+    }
+    var i = nextInt(size);
+    if (items instanceof List<? extends T> list) {
+      return list.get(i);
+    }
+    for (var item:items) {
+      if (i-- == 0) return item;
+    }
+    throw new ConcurrentModificationException();
+  }
+
+}
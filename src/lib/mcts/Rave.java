@@ -0,0 +1,109 @@
+package lib.mcts;
+
+import java.util.function.ToIntFunction;
+
+import static java.lang.Math.*;
+
+/**
+ * The settings of Rapid Action Value Estimation (RAVE) for a solver.
+ *
+ * With RAVE each node also keeps all-moves-as-first (AMAF) statistics: the visits and rewards of every action that was
+ * taken anywhere below the node, in the tree or in the rollout, during the iterations through it. When selecting among
+ * the children of a node, the mean reward of each child is blended with the AMAF mean of its action at the node, with
+ * a weight given by the [Schedule] that shifts from the AMAF mean to the child's own mean as visits accumulate. This
+ * pays off in domains where the value of an action depends little on when it is taken, and mostly at low iteration
+ * counts.
+ *
+ * The AMAF statistics of a node are kept in an array indexed by action code, so actions must map to codes in
+ * `[0,actionCount)`. Tables are only allocated for nodes with children.
+ *
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the function that gives the code of an action, the number of action codes and the
+ * [Schedule].
+ */
+public final class Rave<ActionType> {
+
+  public Rave(ToIntFunction<ActionType> actionCode, int actionCount, Schedule schedule) {
+    assert actionCode != null : "actionCode";
+    assert actionCount > 0 : "actionCount";
+    assert schedule != null : "schedule";
+    this.actionCode = actionCode;
+    this.actionCount = actionCount;
+    this.schedule = schedule;
+  }
+
+  private final ToIntFunction<ActionType> actionCode;
+  private final int actionCount;
+  private final Schedule schedule;
+
+  public final ToIntFunction<ActionType> actionCode() { return actionCode; }
+  public final int actionCount() { return actionCount; }
+  public final Schedule schedule() { return schedule; }
+
+  /**
+   * Decides the weight of the AMAF mean in the value of a child.
+   */
+  @FunctionalInterface
+  public interface Schedule {
+
+    /**
+     * The weight in [0,1] of the AMAF mean for a child visited n times whose action has amafN AMAF visits.
+     */
+    double beta(double n, double amafN);
+
+    /**
+     * Weighs the AMAF mean by `sqrt(k / (3n + k))`, so that both means weigh the same after k visits.
+     */
+    static Schedule equivalence(double k) {
+      assert k > 0 : "k";
+      return (n, amafN) -> sqrt(k / (3 * n + k));
+    }
+
+    /**
+     * Weighs the AMAF mean by `amafN / (n + amafN + 4 b^2 n amafN)`, which minimises the mean squared error of the
+     * blend if the AMAF mean is off by the given bias.
+     */
+    static Schedule minimumError(double bias) {
+      assert bias >= 0 : "bias";
+      var b = 4 * bias * bias;
+      return (n, amafN) -> amafN / (n + amafN + b * n * amafN);
+    }
+  }
+
+  /**
+   * Returns the code of the given action.
+   */
+  final int code(ActionType action) {
+    return actionCode.applyAsInt(action);
+  }
+
+  /**
+   * Returns a new, empty AMAF table.
+   */
+  final double[] table() {
+    return new double[2 * actionCount];
+  }
+
+  /**
+   * Records a reward for the action with the given code in the AMAF table.
+   */
+  static void record(double[] table, int code, double reward) {
+    table[2 * code] += 1;
+    table[2 * code + 1] += reward;
+  }
+
+  /**
+   * Blends the mean reward of a child, visited n times with the given reward sum, with the AMAF mean of its action in
+   * the table of its parent. Returns the blended value as a reward sum over n visits.
+   */
+  final double blend(double[] table, int code, double n, double reward) {
+    var amafN = table[2 * code];
+    if (amafN == 0) {
+      return reward;
+    }
+    var beta = schedule.beta(n, amafN);
+    return (1 - beta) * reward + beta * n * table[2 * code + 1] / amafN;
+  }
+
+}
@@ -0,0 +1,40 @@
+package lib.mcts;
+
+/**
+ * Decides which nodes of a [HybridSolver] tree keep their state.
+ *
+ * Nodes whose state is not kept recompute it when needed by replaying the transitions from the nearest ancestor that
+ * does keep it. The root always keeps its state.
+ */
+@FunctionalInterface
+public interface RetentionPolicy {
+
+  /**
+   * Whether a node at the given depth keeps its state.
+   */
+  boolean retain(int depth);
+
+  /**
+   * Keeps the state of every node, as [StatefulSolver] does.
+   */
+  static RetentionPolicy all() {
+    return depth -> true;
+  }
+
+  /**
+   * Keeps the states of nodes down to the given depth.
+   */
+  static RetentionPolicy depth(int maxDepth) {
+    assert maxDepth >= 0 : "maxDepth";
+    return depth -> depth <= maxDepth;
+  }
+
+  /**
+   * Keeps the states of every k-th level as checkpoints, so that no state is more than k-1 transitions away.
+   */
+  static RetentionPolicy checkpoints(int interval) {
+    assert interval > 0 : "interval";
+    return depth -> depth % interval == 0;
+  }
+
+}
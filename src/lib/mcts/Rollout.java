@@ -0,0 +1,156 @@
+package lib.mcts;
+
+/**
+ * The simulation step of an [AbstractMDPSolver]: the estimate of the value of a leaf, by a rollout or from the
+ * [RolloutCache].
+ *
+ * A rollout chooses its actions by the [RolloutPolicy], or by [Mast] when the solver searches with it, and ends at a
+ * terminal state, after the [AbstractMDPSolver.simulationDepthLimit] steps, or when cut off by the [depthLimit] or the
+ * [discountEpsilon]; a cut off rollout is scored by the [leafEvaluator] if there is one. With a [MutableMDP] the rollout
+ * updates the state of the leaf in place and undoes its actions before returning.
+ *
+ * The solver owns one rollout and keeps the settings of its simulations in it.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the solver that runs the rollouts.
+ */
+final class Rollout<StateType, ActionType> {
+
+  Rollout(AbstractMDPSolver<StateType, ActionType, ?> solver) {
+    assert solver != null : "solver";
+    this.solver = solver;
+  }
+
+  private final AbstractMDPSolver<StateType, ActionType, ?> solver;
+
+  RolloutPolicy<StateType, ActionType> policy = RolloutPolicy.uniform();
+  LeafEvaluator<StateType> leafEvaluator;
+  int depthLimit = Integer.MAX_VALUE;
+  double discountEpsilon;
+  RolloutCache<StateType> cache;
+
+  /**
+   * Returns the value of a non-terminal state: the recorded mean from the [cache] if it has one, otherwise the reward
+   * of a new rollout.
+   */
+  double estimate(StateType state) {
+    if (cache == null) {
+      return run(state);
+    }
+
+    var symmetry = solver.symmetry();
+    var key = symmetry != null ? symmetry.canonical(state) : state;
+    var cached = cache.lookup(key);
+    if (!Double.isNaN(cached)) {
+      solver.traceln("Rollout cache hit: " + cached);
+      return cached;
+    }
+    var reward = run(state);
+    cache.record(key, reward);
+    return reward;
+  }
+
+  /**
+   * Runs a rollout from the given non-terminal state and returns its discounted reward.
+   */
+  double run(StateType state) {
+    var trajectory = solver.trajectory();
+    if (trajectory != null) {
+      trajectory.clear();
+    }
+    if (leafEvaluator != null && isCutoff(0, 1.0)) {
+      return leafEvaluator.evaluate(state);
+    }
+
+    var mutable = solver.mutableMDP();
+    if (mutable != null) {
+      var undo = solver.undoDepth();
+      try {
+        return run(state, mutable, trajectory);
+      } finally {
+        solver.undo(mutable, state, undo);
+      }
+    }
+
+    return run(state, null, trajectory);
+  }
+
+  /**
+   * Runs the rollout loop; with a [MutableMDP] the given state is updated in place and the undo tokens are pushed on
+   * the undo stack of the solver for the caller to unwind.
+   */
+  private double run(StateType state, MutableMDP<StateType, ActionType> mutable, Trajectory<ActionType> trajectory) {
+    var mdp = solver.mdp();
+    var random = solver.random();
+    var depth = 0;
+    var currentState = state;
+    var discount = 1.0;
+
+    for (;;) {
+      var validActions = mdp.actions(currentState);
+      ActionType randomAction;
+      if (trajectory != null) {
+        var player = solver.adversarial() ? solver.playerToMove(currentState) : 0;
+        randomAction = trajectory.select(validActions, player, random);
+        if (randomAction == null) {
+          randomAction = policy.select(currentState, validActions, random);
+        }
+        trajectory.record(randomAction, player);
+      } else {
+        randomAction = policy.select(currentState, validActions, random);
+      }
+      StateType previousState, newState;
+      if (mutable != null) {
+        solver.apply(mutable, currentState, randomAction);
+        previousState = null;
+        newState = currentState;
+      } else {
+        previousState = currentState;
+        newState = mdp.transition(currentState, randomAction, random);
+      }
+      discount *= solver.discount(newState);
+
+      if (solver.verbose()) {
+        solver.trace("-> " + randomAction);
+        solver.trace(" => " + newState);
+      }
+
+      if (mdp.isTerminal(newState)) {
+        var reward = mdp.reward(previousState, randomAction, newState) * discount;
+        if (solver.verbose()) {
+          solver.traceln("-> Terminal state reached : " + reward);
+        }
+
+        return reward;
+      }
+
+      if (isCutoff(depth + 1, discount)) {
+        var reward = (leafEvaluator != null ? leafEvaluator.evaluate(newState) : mdp.reward(previousState, randomAction, newState)) * discount;
+        if (solver.verbose()) {
+          solver.traceln("-> Rollout cut off: " + reward);
+        }
+
+        return reward;
+      }
+
+      currentState = newState;
+      depth++;
+
+      if (depth > solver.simulationDepthLimit()) {
+        var reward = mdp.reward(mutable != null ? null : currentState, randomAction, newState) * discount * solver.discount(newState);
+        if (solver.verbose()) {
+          solver.traceln("-> Depth limit reached: " + reward);
+        }
+
+        return reward;
+      }
+    }
+  }
+
+  private boolean isCutoff(int depth, double discount) {
+    return depth >= depthLimit || discount < discountEpsilon;
+  }
+
+}
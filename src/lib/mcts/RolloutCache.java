@@ -0,0 +1,188 @@
+package lib.mcts;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of rollout results keyed by state.
+ *
+ * Solvers that are given a cache record the value of each rollout under the state it started from, and answer later
+ * simulations from that state with the recorded mean once enough rollouts have been seen. This pays off for
+ * deterministic MDPs in which the same leaf states are simulated repeatedly, e.g. through transpositions or when a new
+ * tree is searched for each move of a game. A cache may be shared by several solvers that run on the same thread.
+ *
+ * Entries are kept in an open-addressing table with linear probing; states are compared by their `hashCode` and
+ * `equals`. Once the cache is full, entries are evicted by the clock (second chance) algorithm, so entries that were
+ * looked up since the clock hand last passed them are kept.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ *
+ * The constructor takes in the maximum number of entries and the number of rollouts that must be recorded for a state
+ * before its mean is used to answer a simulation.
+ */
+public final class RolloutCache<StateType> {
+
+  public RolloutCache(int capacity, int samples) {
+    assert capacity > 0 : "capacity";
+    assert samples > 0 : "samples";
+    this.capacity = capacity;
+    this.samples = samples;
+    var length = Integer.highestOneBit(capacity + (capacity >>> 1)) << 1;
+    this.mask = length - 1;
+    this.keys = new Object[length];
+    this.hashes = new int[length];
+    this.counts = new int[length];
+    this.sums = new double[length];
+    this.referenced = new boolean[length];
+  }
+
+  private final int capacity;
+  private final int samples;
+  private final int mask;
+
+  private final Object[] keys;
+  private final int[] hashes;
+  private final int[] counts;
+  private final double[] sums;
+  private final boolean[] referenced;
+
+  private int size;
+  private int hand;
+  private long hits;
+  private long misses;
+
+  public final int capacity() { return capacity; }
+  public final int samples() { return samples; }
+
+  /**
+   * The number of states currently held.
+   */
+  public final int size() { return size; }
+
+  /**
+   * The number of lookups that were answered from the cache.
+   */
+  public final long hits() { return hits; }
+
+  /**
+   * The number of lookups that were not answered from the cache.
+   */
+  public final long misses() { return misses; }
+
+  /**
+   * Returns the mean recorded rollout value for the given state, or NaN if fewer than [samples] rollouts have been
+   * recorded for it.
+   */
+  public double lookup(StateType state) {
+    assert state != null : "state";
+    var i = find(state, hash(state));
+    if (i >= 0 && counts[i] >= samples) {
+      referenced[i] = true;
+      hits++;
+      return sums[i] / counts[i];
+    }
+    misses++;
+    return Double.NaN;
+  }
+
+  /**
+   * Records the value of a rollout that started from the given state.
+   */
+  public void record(StateType state, double value) {
+    assert state != null : "state";
+    var hash = hash(state);
+    var i = find(state, hash);
+    if (i < 0) {
+      if (size >= capacity) {
+        evict();
+        i = find(state, hash);
+      }
+      i = -1 - i;
+      keys[i] = state;
+      hashes[i] = hash;
+      counts[i] = 0;
+      sums[i] = 0.0;
+      size++;
+    }
+    referenced[i] = true;
+    counts[i]++;
+    sums[i] += value;
+  }
+
+  /**
+   * Removes all entries and resets the hit and miss counters.
+   */
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(referenced, false);
+    size = hand = 0;
+    hits = misses = 0;
+  }
+
+  @Override
+  public String toString() {
+    return "RolloutCache: size %d/%d, hits %d, misses %d".formatted(size, capacity, hits, misses);
+  }
+
+  // Utilities
+
+  private static int hash(Object state) {
+    var h = state.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the slot holding the given state, or `-1 - slot` of the empty slot where it would be inserted.
+   */
+  private int find(Object state, int hash) {
+    var i = hash & mask;
+    for (;;) {
+      var key = keys[i];
+      if (key == null) {
+        return -1 - i;
+      }
+      if (hashes[i] == hash && key.equals(state)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  private void evict() {
+    for (;;) {
+      var i = hand;
+      hand = (hand + 1) & mask;
+      if (keys[i] == null) {
+        continue;
+      }
+      if (referenced[i]) {
+        referenced[i] = false;
+        continue;
+      }
+      delete(i);
+      return;
+    }
+  }
+
+  /**
+   * Empties the given slot, shifting back later entries of the probe sequence so that no lookup is cut short.
+   */
+  private void delete(int i) {
+    keys[i] = null;
+    size--;
+    for (var j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+      var k = hashes[j] & mask;
+      var stays = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+      if (stays) {
+        continue;
+      }
+      keys[i] = keys[j];
+      hashes[i] = hashes[j];
+      counts[i] = counts[j];
+      sums[i] = sums[j];
+      referenced[i] = referenced[j];
+      keys[j] = null;
+      i = j;
+    }
+  }
+
+}
@@ -0,0 +1,34 @@
+package lib.mcts;
+
+import java.util.Set;
+
+/**
+ * A policy that chooses the actions taken during the simulation (rollout) phase of MCTS.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+@FunctionalInterface
+public interface RolloutPolicy<StateType, ActionType> {
+
+  /**
+   * Chooses one of the given actions for the given state. Any randomness must be drawn from the given source.
+   */
+  ActionType select(StateType state, Set<ActionType> actions, RandomSource random);
+
+  /**
+   * Returns a policy that chooses uniformly among the available actions.
+   */
+  static <StateType, ActionType> RolloutPolicy<StateType, ActionType> uniform() {
+    return (state, actions, random) -> random.choose(actions);
+  }
+
+  /**
+   * Returns a policy that always chooses the first available action in the iteration order of the set, the choice
+   * rollouts made before policies could be set.
+   */
+  static <StateType, ActionType> RolloutPolicy<StateType, ActionType> first() {
+    return (state, actions, random) -> actions.iterator().next();
+  }
+
+}
@@ -0,0 +1,159 @@
+package lib.mcts;
+
+import static java.lang.Math.*;
+
+/**
+ * Scores the children of a node during selection; the child with the highest score is descended into.
+ *
+ * Without a policy the solvers score children by [AbstractSolver.calculateUCT], which needs only the number of visits
+ * and the sum of the rewards of each node. A policy that needs more, such as the variance of the rewards, creates a
+ * statistics object for each new node and updates it with every reward backed up through the node, so that nodes only
+ * carry the statistics their policy needs. The prior given to a policy is the value of the solver's [ActionPrior];
+ * PUCT weights its exploration by the probabilities of a [PolicyPrior] of its own instead.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+@FunctionalInterface
+public interface SelectionPolicy<StateType, ActionType> {
+
+  /**
+   * Scores a child visited n times with the given sum of rewards, statistics and prior, whose parent was visited
+   * parentN times. The prior is that of the solver's [ActionPrior], or 0 without one. A randomized policy draws from the
+   * given random source.
+   */
+  double score(double parentN, double n, double reward, Object statistics, double prior, double explorationConstant, RandomSource random);
+
+  /**
+   * Returns the statistics for a new node reached from the given state by the given action, or null if the policy
+   * needs no more than the visits and rewards of the node.
+   */
+  default Object statistics(StateType state, ActionType action) {
+    return null;
+  }
+
+  /**
+   * Records a reward backed up through a node with the given statistics.
+   */
+  default void update(Object statistics, double reward) {
+  }
+
+  /**
+   * Plain UCB1, as [AbstractSolver.calculateUCT].
+   */
+  static <S, A> SelectionPolicy<S, A> ucb1() {
+    return (parentN, n, reward, statistics, prior, c, random) -> reward/n + c * sqrt(log(parentN) / n);
+  }
+
+  /**
+   * UCB1-Tuned, which bounds the exploration term of each child by the observed variance of its rewards, so that
+   * children with consistent rewards are explored less. The rewards are taken to lie in the range [low,high], by which
+   * the variance is scaled to that of rewards in [0,1], where the bound of 1/4 holds; the exploration term is scaled
+   * back to the range.
+   */
+  static <S, A> SelectionPolicy<S, A> ucb1Tuned(double low, double high) {
+    assert high > low : "high";
+    var range = high - low;
+    return new SelectionPolicy<>() {
+      @Override
+      public double score(double parentN, double n, double reward, Object statistics, double prior, double c, RandomSource random) {
+        var variance = statistics instanceof Moments m ? m.variance() / (range * range) : 0.25;
+        var logN = log(parentN);
+        var v = variance + sqrt(2 * logN / n);
+        return reward/n + c * range * sqrt(logN / n * min(0.25, v));
+      }
+      @Override
+      public Object statistics(S state, A action) {
+        return new Moments();
+      }
+      @Override
+      public void update(Object statistics, double reward) {
+        ((Moments) statistics).add(reward);
+      }
+    };
+  }
+
+  /**
+   * PUCT, which weights the exploration term of each child by the probability of its action in the state of the parent
+   * under the given policy. The probability is looked up once, when the node is created, and kept as its statistics.
+   */
+  static <S, A> SelectionPolicy<S, A> puct(PolicyPrior<S, A> policy) {
+    assert policy != null : "policy";
+    return new SelectionPolicy<>() {
+      @Override
+      public double score(double parentN, double n, double reward, Object statistics, double prior, double c, RandomSource random) {
+        if (!(statistics instanceof Double probability)) {
+          throw new IllegalStateException("Node was created before PUCT was selected");
+        }
+        return reward/n + c * probability * sqrt(parentN) / (1 + n);
+      }
+      @Override
+      public Object statistics(S state, A action) {
+        var probability = policy.probability(state, action);
+        if (!(probability >= 0 && probability <= 1)) {
+          throw new IllegalStateException("Policy prior of " + action + " is not a probability: " + probability);
+        }
+        return probability;
+      }
+    };
+  }
+
+  /**
+   * Thompson sampling with a Gaussian posterior of the mean reward of each child. The exploration constant acts as the
+   * prior standard deviation of a reward, so that children with few visits are sampled widely.
+   */
+  static <S, A> SelectionPolicy<S, A> gaussianThompson() {
+    return new SelectionPolicy<>() {
+      @Override
+      public double score(double parentN, double n, double reward, Object statistics, double prior, double c, RandomSource random) {
+        var variance = statistics instanceof Moments m ? (m.variance() * n + c * c) / (n + 1) : c * c;
+        return reward/n + sqrt(variance / n) * random.nextGaussian();
+      }
+      @Override
+      public Object statistics(S state, A action) {
+        return new Moments();
+      }
+      @Override
+      public void update(Object statistics, double reward) {
+        ((Moments) statistics).add(reward);
+      }
+    };
+  }
+
+  /**
+   * Thompson sampling with a Beta posterior of the mean reward of each child, for rewards in the range [low,high]. Each
+   * reward counts as a fractional success after scaling to [0,1], so the posterior follows from the visits and the sum
+   * of the rewards alone. The exploration constant is not used.
+   */
+  static <S, A> SelectionPolicy<S, A> betaThompson(double low, double high) {
+    assert high > low : "high";
+    return (parentN, n, reward, statistics, prior, c, random) -> {
+      var successes = min(n, max(0.0, (reward - n * low) / (high - low)));
+      var a = gamma(random, 1 + successes);
+      var b = gamma(random, 1 + n - successes);
+      return a / (a + b);
+    };
+  }
+
+  /**
+   * Draws from the Gamma distribution with the given shape, which must be at least 1, by the method of Marsaglia and
+   * Tsang.
+   */
+  private static double gamma(RandomSource random, double shape) {
+    var d = shape - 1.0/3;
+    var c = 1 / sqrt(9 * d);
+    for (;;) {
+      double x, v;
+      do {
+        x = random.nextGaussian();
+        v = 1 + c * x;
+      } while (v <= 0);
+      v = v * v * v;
+      var u = random.nextDouble();
+      if (u < 1 - 0.0331 * x * x * x * x || log(u) < 0.5 * x * x + d * (1 - v + log(v))) {
+        return d * v;
+      }
+    }
+  }
+
+}
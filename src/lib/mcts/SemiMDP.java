@@ -0,0 +1,22 @@
+package lib.mcts;
+
+/**
+ * A [MDP] whose transitions take a varying number of time steps, such as an [OptionMDP], in which each action runs
+ * several actions of an underlying MDP.
+ *
+ * The solvers discount the rewards backed up across a transition by the reward discount factor once for each time step
+ * that it takes, rather than once for each level of the tree, so that values stay comparable between actions of
+ * different lengths.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface SemiMDP<StateType, ActionType> extends MDP<StateType, ActionType> {
+
+  /**
+   * The number of time steps taken by the transition that led to the given state, at least 1. The value for the
+   * initial state is not used.
+   */
+  int duration(StateType state);
+
+}
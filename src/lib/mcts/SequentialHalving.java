@@ -0,0 +1,89 @@
+package lib.mcts;
+
+import java.util.ArrayList;
+
+import static java.lang.Math.*;
+
+/**
+ * The allocation of the budget of a search among the actions at the root by Sequential Halving.
+ *
+ * Every root action is expanded first; the remaining budget is then split into rounds, each of which samples the
+ * surviving actions equally and drops the worse half by mean reward, until one action is left, which gets the rest of
+ * the budget. The solver owns the allocation while [AbstractMDPSolver.sequentialHalving] is on, and reaches its root
+ * actions through [AbstractMDPSolver.rootActions] and [AbstractMDPSolver.runRootActionIteration].
+ *
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the solver whose root is searched.
+ */
+final class SequentialHalving<ActionType> {
+
+  SequentialHalving(AbstractMDPSolver<?, ActionType, ?> solver) {
+    assert solver != null : "solver";
+    this.solver = solver;
+  }
+
+  private final AbstractMDPSolver<?, ActionType, ?> solver;
+
+  /**
+   * Runs Sequential Halving over the root actions, for the given number of iterations, or until the given deadline if
+   * the number is negative. Returns the surviving action, or null if the budget ran out before the rounds started.
+   */
+  ActionType run(long iterations, long deadline) {
+    var done = 0L;
+
+    // Expand the root actions, as far as the expansion policy lets the root grow
+    var actions = solver.rootActionCount();
+    while (solver.rootActions().size() < actions && solver.expansionPolicy().expand(solver.rootActions().size(), solver.root().n())) {
+      if (isSpent(done, iterations, deadline)) return null;
+      solver.traceIteration(done++);
+      solver.runTreeSearchIteration();
+    }
+
+    var arms = new ArrayList<>(solver.rootActions());
+    if (arms.isEmpty()) return null;
+    var rounds = 64 - Long.numberOfLeadingZeros(arms.size() - 1);
+
+    for (var round = 0; arms.size() > 1; round++) {
+      var roundsLeft = rounds - round;
+      if (iterations >= 0) {
+        var perArm = max(1, (iterations - done) / ((long) arms.size() * roundsLeft));
+        for (var i = 0L; i < perArm && !isSpent(done, iterations, deadline); i++) {
+          for (var arm:arms) {
+            if (isSpent(done, iterations, deadline)) break;
+            solver.traceIteration(done++);
+            solver.runRootActionIteration(arm);
+          }
+        }
+      } else {
+        var now = System.nanoTime();
+        var roundDeadline = now + (deadline - now) / roundsLeft;
+        for (var spent = false; !spent;) {
+          for (var arm:arms) {
+            if (spent = isSpent(done, iterations, roundDeadline)) break;
+            solver.traceIteration(done++);
+            solver.runRootActionIteration(arm);
+          }
+        }
+      }
+
+      // Keep the better half
+      arms.sort((a,b) -> Double.compare(solver.rootActionMean(b), solver.rootActionMean(a)));
+      arms.subList((arms.size() + 1) / 2, arms.size()).clear();
+      solver.traceln("Sequential Halving kept: " + arms);
+      if (isSpent(done, iterations, deadline)) break;
+    }
+
+    var recommendation = arms.get(0);
+    while (!isSpent(done, iterations, deadline)) {
+      solver.traceIteration(done++);
+      solver.runRootActionIteration(recommendation);
+    }
+    return recommendation;
+  }
+
+  private boolean isSpent(long done, long iterations, long deadline) {
+    return solver.isSearchComplete() || (iterations >= 0 ? done >= iterations : System.nanoTime() - deadline >= 0);
+  }
+
+}
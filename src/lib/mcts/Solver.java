@@ -1,5 +1,7 @@
 package lib.mcts;
 
+import java.time.Duration;
+
 /**
  * A representation of Markov Decision Process (MDP) solvers using Monte Carlo Tree Search (MCTS) methods.
  *
@@ -47,6 +49,14 @@ public interface Solver<ActionType, NodeType extends Node<ActionType, NodeType>>
     for (var i = 0; i < iterations; i++) runTreeSearchIteration();
   }
 
+  /**
+   * Runs iterations of MCTS until the given time budget is spent. The iteration running at the deadline is completed.
+   */
+  default void runTreeSearch(Duration budget) {
+    var deadline = System.nanoTime() + budget.toNanos();
+    while (System.nanoTime() - deadline < 0) runTreeSearchIteration();
+  }
+
   /**
    * Runs a single iterations of MCTS; typically:
    *
@@ -0,0 +1,25 @@
+package lib.mcts;
+
+/**
+ * A compact encoding of MDP states.
+ *
+ * A [StatefulSolver] given a codec stores only the encoded form of each state in its nodes and decodes it whenever the
+ * state is needed, trading some CPU for a much smaller tree when states are large objects. A decoded state must be
+ * equal to the state that was encoded, and may be modified freely by the caller.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param CodeType the type of the encoded form, e.g. a boxed long, a long array or a small record of primitives.
+ */
+public interface StateCodec<StateType, CodeType> {
+
+  /**
+   * Returns the encoded form of the given state.
+   */
+  CodeType encode(StateType state);
+
+  /**
+   * Returns a new state from its encoded form.
+   */
+  StateType decode(CodeType code);
+
+}
@@ -17,29 +17,72 @@ import java.util.Collections;
  *
  * The constructor takes in a [StateNode] that represents the parent node, an [ActionType] that represents the
  * action taken to transition to the current node, a [StateType] that represents the state at this node, a set of valid
- * actions that can be taken from this node and whether this node represents a terminal state
+ * actions that can be taken from this node and whether this node represents a terminal state, and optionally a
+ * [StateCodec] with which the state is kept in encoded form.
  */
 public final class StateNode<StateType, ActionType> extends AbstractNode<ActionType, StateNode<StateType, ActionType>> {
 
   public StateNode(StateNode<StateType, ActionType> parent, ActionType inducingAction, StateType state, Set<ActionType> validActions, boolean isTerminal) {
+    this(parent, inducingAction, state, validActions, isTerminal, null);
+  }
+
+  /**
+   * Creates a node that keeps only the encoded form of its state, if a [StateCodec] is given.
+   */
+  @SuppressWarnings("unchecked")
+  public StateNode(StateNode<StateType, ActionType> parent, ActionType inducingAction, StateType state, Set<ActionType> validActions, boolean isTerminal, StateCodec<StateType, ?> codec) {
     super(parent, inducingAction);
-    this.state = state;
+    this.codec = (StateCodec<StateType, Object>) codec;
+    this.state = codec != null ? codec.encode(state) : state;
     assert validActions != null : "validActions";
     this.validActions = validActions;
     this.isTerminal = isTerminal;
     this.children = new LinkedHashMap<>();
   }
 
-  private final StateType state;
+  private final Object state;
+  private final StateCodec<StateType, Object> codec;
   private final boolean isTerminal;
   private final Set<ActionType> validActions;
 
-  public final StateType state() { return state; }
+  /**
+   * The state at this node; decoded anew on each call if the node keeps only its encoded form.
+   */
+  @SuppressWarnings("unchecked")
+  public final StateType state() { return codec != null ? codec.decode(state) : (StateType) state; }
   public final boolean isTerminal() { return isTerminal; }
 
   @Override
   public final Set<ActionType> validActions() { return validActions; }
 
+  private double lowerBound = Double.NEGATIVE_INFINITY;
+  private double upperBound = Double.POSITIVE_INFINITY;
+
+  /**
+   * The bounds of the proven value of this node, i.e. of the reward that optimal play from this node backs up to it, as
+   * seen by the player who moved into it. They are only maintained by a [StatefulSolver] that proves values.
+   */
+  public final double lowerBound() { return lowerBound; }
+  public final double upperBound() { return upperBound; }
+  public final void bounds(double lowerBound, double upperBound) {
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+  }
+
+  /**
+   * Whether the value of this node is proven, i.e. its bounds have met.
+   */
+  public final boolean isSolved() { return lowerBound >= upperBound; }
+
+  private double minimax = Double.NaN;
+
+  /**
+   * The implicit minimax value of this node, scored from the point of view of player 0 like [MDP.reward], or NaN if it
+   * has none. It is only maintained by a [StatefulSolver] with a [StatefulSolver.minimaxWeight].
+   */
+  public final double minimax() { return minimax; }
+  public final void minimax(double minimax) { this.minimax = minimax; }
+
   private final Map<ActionType, StateNode<StateType, ActionType>> children;
 
   @Override
@@ -1,6 +1,11 @@
 package lib.mcts;
 
-import static java.lang.Math.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import static java.util.stream.Collectors.*;
 
 /**
@@ -16,26 +21,109 @@ import static java.util.stream.Collectors.*;
  * The constructor takes in a [MDP], a depth limit for simulations, a exploration constant, a reward discount factor
  * and a verbosity flag.
  */
-public class StatefulSolver<StateType, ActionType> extends AbstractSolver<ActionType, StateNode<StateType, ActionType>> {
+public class StatefulSolver<StateType, ActionType> extends AbstractMDPSolver<StateType, ActionType, StateNode<StateType, ActionType>> {
 
+  @SuppressWarnings("unchecked")
   public StatefulSolver(MDP<StateType, ActionType> mdp, int simulationDepthLimit, double explorationConstant, double rewardDiscountFactor, boolean verbose) {
-    super(verbose, explorationConstant);
-    assert mdp != null : "mdp";
-    this.mdp = mdp;
-    this.simulationDepthLimit = simulationDepthLimit;
-    this.rewardDiscountFactor = rewardDiscountFactor;
+    super(mdp, simulationDepthLimit, explorationConstant, rewardDiscountFactor, verbose);
+    this.batchMDP = mdp.extension(BatchMDP.class);
     this.root = createNode(null, null, this.mdp.initialState());
   }
 
-  protected final MDP<StateType, ActionType> mdp;
-  protected final int simulationDepthLimit;
-  protected final double rewardDiscountFactor;
+  private final BatchMDP<StateType, ActionType> batchMDP;
+  private StateNode<StateType, ActionType> root;
 
-  public final MDP<StateType, ActionType> mdp() { return mdp; }
-  public final int simulationDepthLimit() { return simulationDepthLimit; }
-  public final double rewardDiscountFactor() { return rewardDiscountFactor; }
+  private StateCodec<StateType, ?> stateCodec;
 
-  private StateNode<StateType, ActionType> root;
+  /**
+   * The codec with which nodes created from now on keep their states in encoded form, or null to keep states as is.
+   */
+  public final StateCodec<StateType, ?> stateCodec() { return stateCodec; }
+  public final void stateCodec(StateCodec<StateType, ?> stateCodec) { this.stateCodec = stateCodec; }
+
+  private boolean proving;
+  private double minValue = Double.NEGATIVE_INFINITY;
+  private double maxValue = Double.POSITIVE_INFINITY;
+
+  /**
+   * Whether the solver proves the values of nodes from terminal states, as in MCTS-Solver.
+   *
+   * Terminal nodes are proven by their reward, and the bounds of the values of the other nodes are backed up from
+   * their children. Selection skips solved children and children that cannot improve on the proven lower bound of
+   * their parent, and the search ends once the value of the root is proven. As with the tree itself, transitions are
+   * taken to be deterministic. Proving should be enabled before the search starts.
+   */
+  public final boolean proving() { return proving; }
+  public final void proving(boolean proving) { this.proving = proving; }
+
+  /**
+   * Bounds on the value of any node, as seen by the player who moved into it, if known. In adversarial mode they should
+   * be symmetric around 0. With tight bounds a node is proven as soon as one of its children is
+   * proven to reach the upper bound, without solving its other children.
+   */
+  public final void valueBounds(double minValue, double maxValue) {
+    assert minValue <= maxValue : "maxValue";
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+  }
+
+  private boolean bulkExpansion;
+  private ForkJoinPool expansionPool;
+
+  /**
+   * Whether a node is expanded by creating all its children at once, rather than one child per iteration.
+   *
+   * With a [BatchMDP] the transitions are taken by [BatchMDP.transitionAll], so that they can share their work. The
+   * children are created in the order of the [actionPrior], best first, and selection tries every unvisited child, the
+   * first one first, before it scores the others; each is simulated on its first visit, as a new child would be.
+   * Bulk expansion takes the place of the [expansionPolicy].
+   */
+  public final boolean bulkExpansion() { return bulkExpansion; }
+  public final void bulkExpansion(boolean bulkExpansion) { this.bulkExpansion = bulkExpansion; }
+
+  /**
+   * The pool in which bulk expansion takes the transitions, and finds the actions of the new states, in parallel, or
+   * null to take them in the searching thread. This pays off for MDPs with expensive transitions, which must then be
+   * safe for use by several threads; each transition draws from its own source split from the [random] source of the
+   * solver.
+   */
+  public final ForkJoinPool expansionPool() { return expansionPool; }
+  public final void expansionPool(ForkJoinPool expansionPool) { this.expansionPool = expansionPool; }
+
+  private double minimaxWeight;
+  private int minimaxDepth;
+
+  /**
+   * The weight in [0,1] of the implicit minimax value of a node against its mean reward in selection, or 0 to keep no
+   * minimax values; 0 by default.
+   *
+   * Each new node is valued by a shallow alpha-beta probe of [minimaxDepth] plies with the [leafEvaluator] at its
+   * horizon, and the values are backed up the tree by minimax, in adversarial mode with the player to move at each node
+   * minimising the value for player 0. Selection then scores a child by `(1 - weight) * mean + weight * minimax`. This
+   * plays much stronger tactically per node searched where rollouts converge slowly. As with proving, transitions are
+   * taken to be deterministic. The weight should be set before the search starts.
+   */
+  public final double minimaxWeight() { return minimaxWeight; }
+  public final void minimaxWeight(double minimaxWeight) {
+    assert minimaxWeight >= 0 && minimaxWeight <= 1 : "minimaxWeight";
+    this.minimaxWeight = minimaxWeight;
+  }
+
+  /**
+   * The depth of the alpha-beta probe that values a new node; 0 by default, which evaluates the state of the node.
+   */
+  public final int minimaxDepth() { return minimaxDepth; }
+  public final void minimaxDepth(int minimaxDepth) {
+    assert minimaxDepth >= 0 : "minimaxDepth";
+    this.minimaxDepth = minimaxDepth;
+  }
+
+  @Override
+  protected void refreshRoot() {
+    if (root.children().isEmpty()) {
+      root = createNode(null, null, root.state());
+    }
+  }
 
   @Override
   public final StateNode<StateType, ActionType> root() {
@@ -55,8 +143,8 @@ public class StatefulSolver<StateType, ActionType> extends AbstractSolver<Action
     assert node != null : "node";
     var currentNode = node;
     for (;;) {
-      // If the node is terminal, return it
-      if (mdp.isTerminal(currentNode.state())) {
+      // If the node is terminal, at the depth limit or solved, return it
+      if (currentNode.isTerminal() || atTreeDepthLimit(currentNode) || currentNode.isSolved()) {
         return currentNode;
       }
 
@@ -64,104 +152,305 @@ public class StatefulSolver<StateType, ActionType> extends AbstractSolver<Action
       assert(currentNode.validActions().size() >= exploredActions.size());
 
       // This state has not been fully explored
-      if (currentNode.validActions().size() > exploredActions.size()) {
+      if (currentNode.validActions().size() > exploredActions.size() && expansionPolicy().expand(exploredActions.size(), currentNode.n())) {
         return currentNode;
       }
 
       // This state has been explored, select best action
-      currentNode = currentNode.children().stream().max(this::compareUCT).orElseThrow(() -> new IllegalStateException("There were no children for explored node"));
+      if (proving) {
+        var parent = currentNode;
+        var proven = provenLowerBound(parent);
+        var next = bestChild(parent.children(), child -> !child.isSolved() && child.upperBound() * discount(child) > proven);
+        if (next == null) {
+          // Nothing below is worth searching, so expand the node or else score it as a leaf
+          return parent;
+        }
+        currentNode = next;
+        continue;
+      }
+      currentNode = bestChild(currentNode.children());
     }
   }
 
   @Override
   public StateNode<StateType, ActionType> expand(StateNode<StateType, ActionType> node) {
     assert node != null : "node";
-    // If the node is terminal, return it
-    if (node.isTerminal()) {
+    // If the node is terminal, at the depth limit or solved, return it
+    if (node.isTerminal() || atTreeDepthLimit(node) || node.isSolved()) {
+      return node;
+    }
+    // A node that proving selected with nothing below it worth searching is scored as a leaf
+    if (proving && node.children().size() >= node.validActions().size()) {
       return node;
     }
 
+    if (bulkExpansion) {
+      // A child created by a bulk expansion is simulated as is
+      if (!node.children().isEmpty() || (node.parent() != null && isUnvisited(node))) {
+        return node;
+      }
+      expandAll(node);
+      return node.children().stream().findFirst().orElseThrow(() -> new IllegalStateException("No unexplored actions available"));
+    }
+
     // Expand an unexplored action
     var exploredActions = node.children().stream().map(c -> c.inducingAction()).collect(toSet());
     var unexploredActions = node.validActions().stream().filter(a -> !exploredActions.contains(a));
-    var actionTaken = unexploredActions.findAny().orElseThrow(() -> new IllegalStateException("No unexplored actions available"));
+    var state = node.state();
+    var actionTaken = untriedAction(state, unexploredActions);
 
     // Transition to new state for given action
-    var newState = mdp.transition(node.state(), actionTaken);
-    return createNode(node, actionTaken, newState);
+    var newState = mdp.transition(state, actionTaken, random());
+    var newNode = createNode(node, actionTaken, newState);
+    initialize(newNode, state, actionTaken);
+    return newNode;
   }
 
+  /**
+   * Scores a solved node by its proven value rather than by another rollout.
+   */
   @Override
   public double simulate(StateNode<StateType, ActionType> node) {
-    assert node != null : "node";
-    traceln("Simulation:");
+    if (node.isSolved() && !node.isTerminal()) {
+      traceln("Solved node reached: " + node.lowerBound());
+      return perspective(node, node.lowerBound());
+    }
+    return super.simulate(node);
+  }
 
-    // If state is terminal, the reward is defined by MDP
-    if (node.isTerminal()) {
-      traceln("Terminal state reached");
-      var parent = node.parent();
-      return mdp.reward(parent != null ? parent.state() : null, node.inducingAction(), node.state());
+  @Override
+  public void backPropagate(StateNode<StateType, ActionType> node, double reward) {
+    super.backPropagate(node, reward);
+    if (proving) {
+      for (var current = node.parent(); current != null && prove(current); current = current.parent());
     }
+    if (minimaxWeight > 0) {
+      for (var current = node.parent(); current != null && backUpMinimax(current); current = current.parent());
+    }
+  }
 
-    var depth = 0;
-    var currentState = node.state();
-    var discount = rewardDiscountFactor;
+  /**
+   * Blends the mean reward of the node with its implicit minimax value, as seen by the player who moved into it.
+   */
+  @Override
+  protected double blendedReward(StateNode<StateType, ActionType> node, double reward) {
+    var minimax = node.minimax();
+    if (minimaxWeight == 0 || Double.isNaN(minimax)) {
+      return reward;
+    }
+    return (1 - minimaxWeight) * reward + minimaxWeight * node.n() * perspective(node, minimax);
+  }
 
-    for (;;) {
-      var validActions = mdp.actions(currentState);
-      var randomAction = validActions.stream().findAny().get();
-      var newState = mdp.transition(currentState, randomAction);
+  @Override
+  protected boolean isSearchComplete() {
+    return proving && root.isSolved();
+  }
 
-      if (verbose()) {
-        trace("-> " + randomAction);
-        trace("-> " + newState);
+  /**
+   * Returns the action of the best proven child once the value of the root is proven, otherwise the action of the most
+   * visited child.
+   */
+  @Override
+  public ActionType extractOptimalAction() {
+    if (proving && root.isSolved() && !root.isTerminal()) {
+      var best = root.children().stream().filter(c -> c.isSolved()).max((a,b) -> Double.compare(a.lowerBound(), b.lowerBound()));
+      if (best.isPresent()) {
+        return best.get().inducingAction();
       }
+    }
+    return super.extractOptimalAction();
+  }
 
-      if (mdp.isTerminal(newState)) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Terminal state reached : " + reward);
-        }
+  // Utilities
 
-        return reward;
-      }
+  /**
+   * Returns the highest proven lower bound among the children of the given node, discounted to the node; a child whose
+   * discounted upper bound does not exceed it cannot be the best child, and need not be searched any more.
+   */
+  private double provenLowerBound(StateNode<StateType, ActionType> node) {
+    var lower = minValue;
+    for (var child:node.children()) {
+      lower = Math.max(lower, child.lowerBound() * discount(child));
+    }
+    return lower;
+  }
 
-      currentState = newState;
-      depth++;
-      discount *= rewardDiscountFactor;
+  /**
+   * Backs up the bounds of the given node from its children. Returns whether they changed.
+   *
+   * The children are valued by the player to move at the node, who picks the best; in adversarial mode, the value for
+   * the player who moved into the node is its negation if that is the other player.
+   */
+  private boolean prove(StateNode<StateType, ActionType> node) {
+    if (node.isSolved()) {
+      return false;
+    }
+    var lower = provenLowerBound(node);
+    var upper = Double.NEGATIVE_INFINITY;
+    for (var child:node.children()) {
+      upper = Math.max(upper, child.upperBound() * discount(child));
+    }
+    if (node.validActions().size() > node.children().size()) {
+      upper = maxValue;
+    }
+    var parent = node.parent();
+    if (adversarial() && node.player() != (parent != null ? parent.player() : 0)) {
+      var negatedLower = -upper;
+      upper = -lower;
+      lower = negatedLower;
+    }
+    if (lower == node.lowerBound() && upper == node.upperBound()) {
+      return false;
+    }
+    node.bounds(lower, upper);
+    return true;
+  }
 
-      if (depth > simulationDepthLimit) {
-        var reward = mdp.reward(currentState, randomAction, newState) * discount;
-        if (verbose()) {
-          traceln("-> Depth limit reached: " + reward);
-        }
+  // The new state of a bulk expansion with its actions
+  private record Successor<StateType, ActionType>(ActionType action, StateType state, Set<ActionType> actions, boolean isTerminal) {}
+
+  /**
+   * Creates all the children of the given node, in the order of the [actionPrior].
+   */
+  private void expandAll(StateNode<StateType, ActionType> node) {
+    var state = node.state();
+    var actions = new ArrayList<>(node.validActions());
+    if (actionPrior() != null) {
+      actions.sort((a, b) -> Double.compare(prior(state, b), prior(state, a)));
+    }
+    var states = batchMDP != null ? batchMDP.transitionAll(state, actions, random()) : null;
+    List<Successor<StateType, ActionType>> successors;
+    if (expansionPool == null) {
+      successors = new ArrayList<>(actions.size());
+      for (var i = 0; i < actions.size(); i++) {
+        var action = actions.get(i);
+        successors.add(successor(action, states != null ? states.get(i) : mdp.transition(state, action, random())));
+      }
+    } else {
+      successors = expandInParallel(state, actions, states);
+    }
+    for (var successor:successors) {
+      var child = createNode(node, successor.action(), successor.state(), successor.actions(), successor.isTerminal());
+      initialize(child, state, successor.action());
+    }
+  }
 
-        return reward;
+  private List<Successor<StateType, ActionType>> expandInParallel(StateType state, List<ActionType> actions, List<StateType> states) {
+    var tasks = new ArrayList<ForkJoinTask<Successor<StateType, ActionType>>>(actions.size());
+    for (var i = 0; i < actions.size(); i++) {
+      var action = actions.get(i);
+      if (states != null) {
+        var newState = states.get(i);
+        tasks.add(ForkJoinTask.adapt(() -> successor(action, newState)));
+      } else {
+        var random = random().split();
+        tasks.add(ForkJoinTask.adapt(() -> successor(action, mdp.transition(state, action, random))));
       }
     }
+    expansionPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    var successors = new ArrayList<Successor<StateType, ActionType>>(tasks.size());
+    for (var task:tasks) successors.add(task.join());
+    return successors;
   }
 
-  @Override
-  public void backPropagate(StateNode<StateType, ActionType> node, double reward) {
-    assert node != null : "node";
-    var currentStateNode = node;
-    var currentReward = reward;
+  private Successor<StateType, ActionType> successor(ActionType action, StateType state) {
+    return new Successor<>(action, state, distinctActions(state, mdp.actions(state)), mdp.isTerminal(state));
+  }
 
-    for (;;) {
-      currentStateNode.maxReward(max(currentStateNode.maxReward(), currentReward));
-      currentStateNode.reward(currentStateNode.reward() + currentReward);
-      currentStateNode.n(currentStateNode.n() + 1);
-      if ((currentStateNode = currentStateNode.parent()) == null) break;
-      currentReward *= rewardDiscountFactor;
+  /**
+   * Backs up the minimax value of the given node from its children. Returns whether it changed.
+   */
+  private boolean backUpMinimax(StateNode<StateType, ActionType> node) {
+    var minimising = minimising(node.player());
+    var best = Double.NaN;
+    for (var child:node.children()) {
+      var value = child.minimax() * discount(child);
+      if (Double.isNaN(value)) continue;
+      if (Double.isNaN(best) || (minimising ? value < best : value > best)) {
+        best = value;
+      }
     }
+    if (Double.isNaN(best)) {
+      return false;
+    }
+    if (best == node.minimax()) {
+      return false;
+    }
+    node.minimax(best);
+    return true;
   }
 
-  // Utilities
+  /**
+   * Returns the value for player 0 of the given state by an alpha-beta search of the given depth, with the
+   * [leafEvaluator] at its horizon.
+   */
+  private double probe(StateType state, int depth, double alpha, double beta) {
+    var evaluator = leafEvaluator();
+    if (evaluator == null) {
+      throw new IllegalStateException("Implicit minimax requires a LeafEvaluator");
+    }
+    if (depth == 0) {
+      return evaluator.evaluate(state);
+    }
+    var minimising = minimising(playerToMove(state));
+    var best = minimising ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+    for (var action:mdp.actions(state)) {
+      var next = mdp.transition(state, action, random());
+      var discount = discount(next);
+      // The window for the child, undiscounted
+      var childAlpha = discount > 0 ? alpha / discount : Double.NEGATIVE_INFINITY;
+      var childBeta = discount > 0 ? beta / discount : Double.POSITIVE_INFINITY;
+      var value = discount * (mdp.isTerminal(next) ? mdp.reward(state, action, next) : probe(next, depth - 1, childAlpha, childBeta));
+      if (minimising) {
+        best = Math.min(best, value);
+        beta = Math.min(beta, value);
+      } else {
+        best = Math.max(best, value);
+        alpha = Math.max(alpha, value);
+      }
+      if (alpha >= beta) break;
+    }
+    // A state without actions is evaluated as is
+    return Double.isInfinite(best) ? evaluator.evaluate(state) : best;
+  }
+
+  /**
+   * Whether the given player minimises the value for player 0, i.e. is the opponent in adversarial mode.
+   */
+  private boolean minimising(int player) {
+    return adversarial() && player != 0;
+  }
+
+  @Override
+  protected final StateType state(StateNode<StateType, ActionType> node) {
+    return node.state();
+  }
+
+  @Override
+  protected final boolean isTerminal(StateNode<StateType, ActionType> node) {
+    return node.isTerminal();
+  }
 
   private final StateNode<StateType, ActionType> createNode(StateNode<StateType, ActionType> parent, ActionType inducingAction, StateType state) {
-    var validActions = mdp.actions(state);
-    var isTerminal = mdp.isTerminal(state);
-    var stateNode = new StateNode<>(parent, inducingAction, state, validActions, isTerminal);
+    return createNode(parent, inducingAction, state, distinctActions(state, mdp.actions(state)), mdp.isTerminal(state));
+  }
+
+  private final StateNode<StateType, ActionType> createNode(StateNode<StateType, ActionType> parent, ActionType inducingAction, StateType state, Set<ActionType> validActions, boolean isTerminal) {
+    var stateNode = new StateNode<>(parent, inducingAction, state, validActions, isTerminal, stateCodec);
+    annotate(stateNode, state);
+    if (proving) {
+      if (isTerminal) {
+        var value = perspective(stateNode, mdp.reward(parent != null ? parent.state() : null, inducingAction, state));
+        stateNode.bounds(value, value);
+      } else {
+        stateNode.bounds(minValue, maxValue);
+      }
+    }
+    if (minimaxWeight > 0) {
+      stateNode.minimax(isTerminal
+        ? mdp.reward(parent != null ? parent.state() : null, inducingAction, state)
+        : probe(state, minimaxDepth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+    }
     if (parent != null) {
       parent.addChild(stateNode);
     }
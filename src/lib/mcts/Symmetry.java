@@ -0,0 +1,59 @@
+package lib.mcts;
+
+/**
+ * The symmetries of a [MDP]: transformations of states and actions that preserve its transitions and rewards, such as
+ * the rotations and reflections of a square board.
+ *
+ * Solvers given the symmetries of their MDP search only one action out of each set of actions that are symmetric in
+ * the state of a node, i.e. that are mapped onto each other by a symmetry that leaves the state unchanged, as in the
+ * opening of a board game. They also key the [RolloutCache] by the [canonical] form of each state, so that the rollouts
+ * from symmetric states are shared. States and actions must implement `equals` and `hashCode` by value.
+ *
+ * @param StateType the type that represents the states of the MDP.
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ */
+public interface Symmetry<StateType, ActionType> {
+
+  /**
+   * The number of symmetries, including the identity.
+   */
+  int count();
+
+  /**
+   * Returns the image of the state under the symmetry with the given index in `[0,count)`; index 0 is the identity.
+   */
+  StateType state(int symmetry, StateType state);
+
+  /**
+   * Returns the image of the action under the symmetry with the given index in `[0,count)`.
+   */
+  ActionType action(int symmetry, ActionType action);
+
+  /**
+   * Whether the symmetry with the given index leaves the state unchanged. The default compares the image of the state
+   * with the state; implementations may check this without building the image.
+   */
+  default boolean isInvariant(int symmetry, StateType state) {
+    return state(symmetry, state).equals(state);
+  }
+
+  /**
+   * Returns the canonical form of the state, which is the same for all the states symmetric to it. The default picks
+   * the image with the smallest hash code, the first one on ties, so symmetric states whose images collide in their
+   * hash codes may miss being merged.
+   */
+  default StateType canonical(StateType state) {
+    var canonical = state;
+    var hash = state.hashCode();
+    for (var i = 1; i < count(); i++) {
+      var image = state(i, state);
+      var h = image.hashCode();
+      if (h < hash) {
+        canonical = image;
+        hash = h;
+      }
+    }
+    return canonical;
+  }
+
+}
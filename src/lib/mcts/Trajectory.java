@@ -0,0 +1,122 @@
+package lib.mcts;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The actions taken in an iteration of a search with [Rave] or [Mast], and the updates of their statistics.
+ *
+ * An [AbstractMDPSolver] owns a trajectory while either is on. The rollout chooses its actions through it and records
+ * them; backpropagation then records the actions of the tree path, credits the AMAF statistics of each node on the way
+ * up with the actions taken below it, and finally updates the MAST values with the whole trajectory.
+ *
+ * @param ActionType the type that represents the actions that can be taken in the MDP.
+ *
+ * The constructor takes in the settings of [Rave] and of [Mast], either of which may be null, and whether the actions
+ * are recorded with the players who took them.
+ */
+final class Trajectory<ActionType> {
+
+  Trajectory(Rave<ActionType> rave, Mast<ActionType> mast, boolean adversarial) {
+    assert rave != null || mast != null : "rave";
+    this.rave = rave;
+    this.mast = mast;
+    this.adversarial = adversarial;
+    this.seen = rave != null ? new int[rave.actionCount()] : null;
+  }
+
+  private final Rave<ActionType> rave;
+  private final Mast<ActionType> mast;
+  private final boolean adversarial;
+
+  // The codes of the actions shifted left by one, with the player who took each in the lowest bit
+  private int[] codes = new int[16];
+  private int length;
+  // The code of the previous action of the rollout, or -1
+  private int previous = -1;
+  // The stamps of the actions already credited to the current node
+  private final int[] seen;
+  private int stamp;
+
+  /**
+   * The number of actions recorded since the last [clear].
+   */
+  int length() {
+    return length;
+  }
+
+  /**
+   * Forgets the recorded actions, at the start of a rollout.
+   */
+  void clear() {
+    length = 0;
+    previous = -1;
+  }
+
+  /**
+   * Chooses the next rollout action by [Mast] for the given player, or returns null without MAST.
+   */
+  ActionType select(Set<ActionType> actions, int player, RandomSource random) {
+    if (mast == null) {
+      return null;
+    }
+    var action = mast.select(actions, previous, player, random);
+    previous = mast.code(action);
+    return action;
+  }
+
+  /**
+   * Records an action taken by the given player.
+   */
+  void record(ActionType action, int player) {
+    var code = rave != null ? rave.code(action) : mast.code(action);
+    if (length == codes.length) {
+      codes = Arrays.copyOf(codes, length * 2);
+    }
+    codes[length++] = code << 1 | (adversarial ? player : 0);
+  }
+
+  /**
+   * Credits the reward to the AMAF statistics of every action recorded so far, once per action. In adversarial mode
+   * only the actions of the player to move at the node are credited, with the reward as seen by that player. Tables are
+   * allocated on the second visit of a node, once it has children.
+   */
+  void credit(AbstractNode<ActionType, ?> node, double reward) {
+    if (rave == null) {
+      return;
+    }
+    var table = node.amaf();
+    if (table == null) {
+      if (node.n() < 2) return;
+      node.amaf(table = rave.table());
+    }
+    if (++stamp == 0) {
+      Arrays.fill(seen, 0);
+      stamp = 1;
+    }
+    var player = adversarial ? node.player() : 0;
+    if (player != 0) {
+      reward = -reward;
+    }
+    for (var i = 0; i < length; i++) {
+      if ((codes[i] & 1) != player) continue;
+      var code = codes[i] >>> 1;
+      if (seen[code] != stamp) {
+        seen[code] = stamp;
+        Rave.record(table, code, reward);
+      }
+    }
+  }
+
+  /**
+   * Ends the iteration: updates the MAST values with the recorded actions, of which the first rolloutLength were taken
+   * in the rollout, and forgets them.
+   */
+  void finish(int rolloutLength, double reward) {
+    if (mast != null) {
+      mast.update(codes, rolloutLength, length, reward);
+    }
+    clear();
+  }
+
+}
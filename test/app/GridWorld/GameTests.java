@@ -43,7 +43,7 @@ class GameTests {
   double testGridWorld(List<Reward> worldFeatures, char[][][] solutionArray) {
     // Open space small world test.
 
-    var gw = new Solve(8, 5, worldFeatures, 0.85, 9999, 75, 0.9, 0.9, false);
+    var gw = new Solve(8, 5, worldFeatures, 0.85, 150, 40, 0.9, 0.9, false);
 
     gw.getWorldSolve();
     // gw.visualizeWorldSolve();
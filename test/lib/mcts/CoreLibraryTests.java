@@ -3,6 +3,7 @@ package lib.mcts;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -129,6 +130,576 @@ class CoreLibraryTests {
   }
 
 
+  /**
+   * Tests that two solvers seeded alike build identical trees, i.e. that all randomness in the solver,
+   * its rollout policy and the MDP is drawn from the injected [RandomSource].
+   */
+  @Test
+  void coreLibraryTestReproducibleSearch() {
+    var first = new GenericSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    var second = new GenericSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    first.random(RandomSource.of(42));
+    second.random(RandomSource.of(42));
+    first.runTreeSearch(99);
+    second.runTreeSearch(99);
+    assertEquals(first.root().reward(), second.root().reward(), 0.0, "Same seed, same root reward");
+    assertEquals(first.extractOptimalAction(), second.extractOptimalAction(), "Same seed, same optimal action");
+  }
+
+  /**
+   * Tests that a [MemoizingMDP] answers the repeated [MDP.actions] and [MDP.isTerminal] calls made
+   * while the [GenericSolver] replays paths from the root, that it forwards the extensions of the
+   * wrapped MDP, and that it refuses the ones it cannot keep.
+   */
+  @Test
+  void coreLibraryTestMemoizingMDP() {
+    var memoizing = new MemoizingMDP<>( testMDP, 1024, false );
+    var memoizingSolver = new GenericSolver<>( memoizing, depthLimit, exploreConstant, rewardDiscount, verbose );
+    memoizingSolver.runTreeSearch(99);
+    assertTrue(memoizing.hits() > 0, "Memoized results were reused");
+    var game = new MemoizingMDP<>( new StochasticGame(), 1024, false );
+    assertTrue(new GenericSolver<>( game, depthLimit, exploreConstant, rewardDiscount, verbose ).adversarial(), "The game stays adversarial");
+    assertThrows(IllegalStateException.class, () -> new MemoizingMDP<>( new ChanceStochasticMDP(0.75), 1024, false ), "A chance MDP is refused");
+    assertThrows(IllegalStateException.class, () -> new MemoizingMDP<>( new MutableStochasticMDP(0.75), 1024, false ), "A mutable MDP is refused");
+  }
+
+  /**
+   * Tests the table of a [RolloutCache] with states that all hash to the first slot: colliding states
+   * are probed past each other, an evicted state does not cut the probe sequence of those after it, the
+   * clock spares a state that was looked up since it last passed, and the counters add up.
+   */
+  @Test
+  void coreLibraryTestRolloutCache() {
+    record Colliding(int id) {
+      @Override
+      public int hashCode() { return 0; }
+    }
+    var cache = new RolloutCache<Colliding>(3, 1);
+    for (var id = 1; id <= 3; id++) cache.record(new Colliding(id), id);
+    for (var id = 1; id <= 3; id++) assertEquals(id, cache.lookup(new Colliding(id)), 0.0, "Colliding states are kept apart");
+
+    // The full sweep clears every reference, so the oldest state goes and the others shift back
+    cache.record(new Colliding(4), 4);
+    assertEquals(3, cache.size(), "The cache stays within its capacity");
+    // A lookup gives the second oldest state a second chance, so the next one goes instead
+    assertEquals(2, cache.lookup(new Colliding(2)), 0.0, "A shifted state is still found");
+    cache.record(new Colliding(5), 5);
+    assertTrue(Double.isNaN(cache.lookup(new Colliding(1))), "The oldest state was evicted");
+    assertTrue(Double.isNaN(cache.lookup(new Colliding(3))), "The unreferenced state was evicted");
+    for (var id:new int[] { 2, 4, 5 }) assertEquals(id, cache.lookup(new Colliding(id)), 0.0, "The other states are kept");
+    assertEquals(7L, cache.hits(), "Every answered lookup is a hit");
+    assertEquals(2L, cache.misses(), "Every unanswered lookup is a miss");
+
+    var sampled = new RolloutCache<Colliding>(3, 2);
+    sampled.record(new Colliding(1), 1);
+    assertTrue(Double.isNaN(sampled.lookup(new Colliding(1))), "One rollout is too few samples");
+    sampled.record(new Colliding(1), 3);
+    assertEquals(2.0, sampled.lookup(new Colliding(1)), 0.0, "The mean of the rollouts is returned");
+    sampled.clear();
+    assertEquals(0, sampled.size(), "Clearing empties the cache");
+    assertEquals(0L, sampled.hits() + sampled.misses(), "Clearing resets the counters");
+  }
+
+  /**
+   * Tests that the [HybridSolver] builds a consistent tree when only checkpoint levels keep their states,
+   * and that replayed states respect the byte budget of the state cache.
+   */
+  @Test
+  void coreLibraryTestHybridSolver() {
+    var hybrid = new HybridSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose, RetentionPolicy.checkpoints(3) );
+    hybrid.stateCache(16 * 8, state -> 16);
+    hybrid.runTreeSearch(99);
+    assertEquals(99L, hybrid.root().n(), "Every iteration reaches the root");
+    assertTrue(hybrid.stateCacheBytes() <= 16 * 8, "State cache within budget");
+    var node = hybrid.root();
+    while (!node.children().isEmpty()) {
+      node = node.children().stream().findAny().get();
+      assertEquals(node.depth() % 3 == 0, node.hasState(), "Only checkpoint levels retain state");
+    }
+  }
+
+  /**
+   * Tests that the [ChanceSolver] keeps each outcome of an action as one child with its probability,
+   * and that the visits of the outcomes add up to the visits of their chance node.
+   */
+  @Test
+  void coreLibraryTestChanceSolver() {
+    var chanceMDP = new ChanceStochasticMDP(0.75);
+    var chanceSolver = new ChanceSolver<>( chanceMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    chanceSolver.runTreeSearch(99);
+    for (var chance:chanceSolver.root().chances()) {
+      assertTrue(chance.outcomes().size() <= 2, "Outcomes are merged by state");
+      var n = 0;
+      for (var outcome:chance.outcomes()) {
+        n += outcome.n();
+        var probability = chanceMDP.outcomes(chanceMDP.afterstate(chanceSolver.root().state(), chance.action())).get(outcome.state());
+        assertEquals(probability, chance.probability(outcome), 0.0, "The outcome keeps its probability");
+      }
+      assertEquals(chance.n(), n, "Outcome visits add up to chance node visits");
+    }
+  }
+
+  /**
+   * Tests the [OpenLoopSolver] on the stochastic MDP: every iteration reaches the root,
+   * and the monotonic relation of n visits from child to parent holds.
+   */
+  @Test
+  void coreLibraryTestOpenLoopSolver() {
+    var openLoop = new OpenLoopSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    openLoop.runTreeSearch(99);
+    assertEquals(99L, openLoop.root().n(), "Every iteration reaches the root");
+    var node = openLoop.root();
+    while (!node.children().isEmpty()) {
+      var child = node.children().stream().findAny().get();
+      assertTrue(child.n() <= node.n(), "Monotonic guarantee of n child <= n parent");
+      node = child;
+    }
+
+    var inPlace = new OpenLoopSolver<>( new MutableStochasticMDP(0.75), depthLimit, exploreConstant, rewardDiscount, verbose );
+    assertThrows(IllegalStateException.class, () -> inPlace.rolloutCache(new RolloutCache<>(64, 1)), "The scratch state cannot key the cache");
+  }
+
+  /**
+   * Tests that undoing an action of a [MutableMDP] restores the state, and that the rollouts of a
+   * [StatefulSolver] update the states of its leaves in place and leave them as they were.
+   */
+  @Test
+  void coreLibraryTestMutableMDP() {
+    var mutable = new MutableStochasticMDP(0.75);
+    var state = mutable.initialState();
+    var token = mutable.apply(state, StochasticAction.RIGHT, RandomSource.of(42));
+    assertEquals(1, state.counter, "The action is applied in place");
+    mutable.undo(state, StochasticAction.RIGHT, token);
+    assertEquals(0, state.stateIndex, "Undoing restores the index");
+    assertEquals(0, state.counter, "Undoing restores the counter");
+
+    var stateful = new StatefulSolver<>( mutable, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.runTreeSearch(99);
+    assertTrue(mutable.applied > 99 * depthLimit, "The rollouts apply their actions in place");
+    assertEquals(0, stateful.undoDepth(), "Every rollout unwinds its actions");
+    var nodes = new java.util.ArrayDeque<StateNode<MutableStochasticState, StochasticAction>>();
+    nodes.add(stateful.root());
+    while (!nodes.isEmpty()) {
+      var node = nodes.poll();
+      assertEquals(node.depth(), node.state().counter, "The state of every node is left as it was");
+      nodes.addAll(node.children());
+    }
+  }
+
+  /**
+   * Tests that the built-in [SelectionPolicy] instances drive a search, and that the [Moments] a policy
+   * attaches to a node see every reward backed up through it.
+   */
+  @Test
+  void coreLibraryTestSelectionPolicies() {
+    var policies = java.util.List.<SelectionPolicy<StochasticState, StochasticAction>>of(
+      SelectionPolicy.ucb1(), SelectionPolicy.ucb1Tuned(-60, 60), SelectionPolicy.puct((state, action) -> 0.5),
+      SelectionPolicy.gaussianThompson(), SelectionPolicy.betaThompson(-60, 60)
+    );
+    for (var policy:policies) {
+      var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+      stateful.selectionPolicy(policy);
+      stateful.actionPrior((state, action) -> 0.5);
+      stateful.runTreeSearch(99);
+      assertEquals(99L, stateful.root().n(), "Every iteration reaches the root");
+      assertNotNull(stateful.extractOptimalAction(), "An action is chosen");
+      for (var child:stateful.root().children()) {
+        if (child.statistics() instanceof Moments moments) {
+          assertEquals(child.n(), moments.count(), "Moments see every backed up reward");
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that with [Rave] the AMAF statistics of the root count each action at most once per iteration,
+   * and that every action was credited.
+   */
+  @Test
+  void coreLibraryTestRave() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.rave(new Rave<StochasticAction>(StochasticAction::ordinal, 2, Rave.Schedule.equivalence(50)));
+    stateful.runTreeSearch(99);
+    var amaf = stateful.root().amaf();
+    assertNotNull(amaf, "The root keeps AMAF statistics");
+    for (var action:StochasticAction.values()) {
+      var n = amaf[2 * action.ordinal()];
+      assertTrue(n > 0 && n < 99, "Each action is credited at most once per iteration");
+    }
+  }
+
+  /**
+   * Tests that [Mast] learns from every iteration that the action favoured by the bias of the MDP has the
+   * higher average reward.
+   */
+  @Test
+  void coreLibraryTestMast() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.random(RandomSource.of(42));
+    var mast = Mast.<StochasticAction>gibbs(StochasticAction::ordinal, 2, 1.0);
+    mast.ngramThreshold(3);
+    stateful.mast(mast);
+    stateful.runTreeSearch(99);
+    assertTrue(mast.mean(StochasticAction.RIGHT.ordinal(), 0) > mast.mean(StochasticAction.LEFT.ordinal(), 0), "The favoured action has the higher average");
+    mast.decay(0);
+    assertEquals(mast.initialValue(), mast.mean(StochasticAction.RIGHT.ordinal(), 0), 0.0, "Decay to 0 forgets the averages");
+  }
+
+  /**
+   * Tests that with an [ActionPrior] the best action is expanded first and its node starts with the
+   * virtual visits at the prior value.
+   */
+  @Test
+  void coreLibraryTestActionPrior() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.actionPrior((state, action) -> action == StochasticAction.RIGHT ? 1.0 : -1.0);
+    stateful.priorVisits(3);
+    stateful.progressiveBias(1);
+    stateful.runTreeSearch(1);
+    var child = stateful.root().children().iterator().next();
+    assertEquals(StochasticAction.RIGHT, child.inducingAction(), "The best action is expanded first");
+    assertEquals(4, child.n(), "The virtual visits count");
+    assertEquals(1.0, child.prior(), 0.0, "The prior is kept");
+  }
+
+  /**
+   * Tests that bulk expansion, also in parallel, creates all children at once and simulates one new
+   * child per iteration, also when the children start with virtual visits.
+   */
+  @Test
+  void coreLibraryTestBulkExpansion() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.bulkExpansion(true);
+    stateful.expansionPool(new java.util.concurrent.ForkJoinPool(2));
+    stateful.runTreeSearch(1);
+    assertEquals(2, stateful.root().children().size(), "All children are created");
+    assertEquals(1L, stateful.root().children().stream().filter(c -> c.n() > 0).count(), "One child is simulated");
+    stateful.runTreeSearch(1);
+    for (var child:stateful.root().children()) {
+      assertEquals(1, child.n(), "Unvisited children come first");
+      assertTrue(child.children().isEmpty(), "A new child is simulated as is");
+    }
+
+    stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.bulkExpansion(true);
+    stateful.actionPrior((state, action) -> action == StochasticAction.RIGHT ? 1.0 : -1.0);
+    stateful.priorVisits(3);
+    stateful.runTreeSearch(2);
+    for (var child:stateful.root().children()) {
+      assertEquals(4, child.n(), "Virtual visits do not count as a first visit");
+    }
+  }
+
+  /**
+   * Tests that with progressive widening the number of children of the root grows with the square root
+   * of its visits, where the full expansion policy tries every action.
+   */
+  @Test
+  void coreLibraryTestProgressiveWidening() {
+    var actions = new java.util.LinkedHashSet<Integer>();
+    for (var a = 0; a < 16; a++) actions.add(a);
+    var wideMDP = new MDP<Integer, Integer>() {
+      @Override
+      public Integer initialState() { return 0; }
+      @Override
+      public boolean isTerminal(Integer state) { return state >= 3; }
+      @Override
+      public double reward(Integer previousState, Integer action, Integer state) { return action != null ? action : 0; }
+      @Override
+      public Integer transition(Integer state, Integer action) { return state + 1; }
+      @Override
+      public Set<Integer> actions(Integer state) { return actions; }
+    };
+
+    var widening = new StatefulSolver<>( wideMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    widening.expansionPolicy(ExpansionPolicy.progressiveWidening(1, 0.5));
+    for (var i = 0; i < 100; i++) {
+      widening.runTreeSearch(1);
+      var n = widening.root().n();
+      assertTrue(widening.root().children().size() <= Math.max(1, Math.ceil(Math.sqrt(n))), "The children grow with the square root of the visits");
+    }
+    assertEquals(10, widening.root().children().size(), "Every allowed child is added");
+
+    var full = new StatefulSolver<>( wideMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    full.runTreeSearch(100);
+    assertEquals(16, full.root().children().size(), "The full policy tries every action");
+  }
+
+  /**
+   * Tests that with a [Symmetry] the symmetric actions of the root are searched as one, and that
+   * symmetric states share their canonical form.
+   */
+  @Test
+  void coreLibraryTestSymmetry() {
+    var mirror = new StochasticMirror();
+    assertEquals(mirror.canonical(new StochasticState(1, 1)), mirror.canonical(new StochasticState(-1, 1)), "Symmetric states share their canonical form");
+
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.symmetry(mirror);
+    assertEquals(1, stateful.root().validActions().size(), "The symmetric root actions are merged");
+    stateful.runTreeSearch(20);
+    assertEquals(20L, stateful.root().children().iterator().next().n(), "Every iteration takes the remaining action");
+    assertEquals(2, stateful.root().children().iterator().next().validActions().size(), "Asymmetric states keep their actions");
+  }
+
+  /**
+   * Tests that a [StateCodec] round trip gives back an equal state, and that a [StatefulSolver] keeping
+   * its states encoded searches the same tree as one keeping them as is.
+   */
+  @Test
+  void coreLibraryTestStateCodec() {
+    var codec = new StateCodec<StochasticState, Long>() {
+      int decoded;
+      @Override
+      public Long encode(StochasticState state) {
+        return (long) state.stateIndex() << 32 | (state.counter() & 0xFFFFFFFFL);
+      }
+      @Override
+      public StochasticState decode(Long code) {
+        decoded++;
+        return new StochasticState((int) (code >> 32), (int) (long) code);
+      }
+    };
+    var state = new StochasticState(-3, 7);
+    assertEquals(state, codec.decode(codec.encode(state)), "The round trip gives back an equal state");
+
+    var plain = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    var encoded = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    encoded.stateCodec(codec);
+    plain.random(RandomSource.of(42));
+    encoded.random(RandomSource.of(42));
+    plain.runTreeSearch(99);
+    encoded.runTreeSearch(99);
+    assertTrue(codec.decoded > 99, "The states are decoded when needed");
+    assertEquals(plain.root().reward(), encoded.root().reward(), 0.0, "Same tree, same root reward");
+    assertEquals(plain.extractOptimalAction(), encoded.extractOptimalAction(), "Same tree, same optimal action");
+  }
+
+  /**
+   * Tests that the tree of the never terminating MDP stops growing at the tree depth limit, and that
+   * the automatic limit is the depth at which the discount falls below the precision.
+   */
+  @Test
+  void coreLibraryTestTreeDepthLimit() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, 0.9, verbose );
+    stateful.treeDepthLimit(2);
+    stateful.runTreeSearch(200);
+    var nodes = new java.util.ArrayDeque<StateNode<StochasticState, StochasticAction>>(java.util.List.of(stateful.root()));
+    while (!nodes.isEmpty()) {
+      var node = nodes.pop();
+      assertTrue(node.depth() <= 2, "No node is deeper than the limit");
+      nodes.addAll(node.children());
+    }
+    assertEquals(200L, stateful.root().n(), "Leaves at the limit are simulated");
+
+    stateful.automaticTreeDepthLimit(0.1);
+    assertEquals(22, stateful.treeDepthLimit(), "0.9^22 is the first power below 0.1");
+  }
+
+  /**
+   * Tests that an option runs its actions in one transition, stopping at a terminal state, and that the
+   * proven value of a tree of options is discounted by the number of actions taken, not of options, as
+   * recorded on the nodes.
+   */
+  @Test
+  void coreLibraryTestOptionMDP() {
+    var deterministicMDP = new StochasticMDP(1.0) {
+      @Override
+      public boolean isTerminal(StochasticState state) {
+        return state.counter() >= 4;
+      }
+    };
+    var right = Option.<StochasticState, StochasticAction>sequence(java.util.List.of(StochasticAction.RIGHT, StochasticAction.RIGHT, StochasticAction.RIGHT));
+    var options = java.util.List.of(right, Option.<StochasticState, StochasticAction>primitive(StochasticAction.LEFT));
+    var macro = new OptionMDP<>( deterministicMDP, state -> options, 3, 0.5 );
+    var state = macro.transition(macro.initialState(), right);
+    assertEquals(new StochasticState(3, 3), state.state(), "The option takes all its actions");
+    assertEquals(3, state.duration(), "The duration is the number of actions taken");
+    assertEquals(2 + 0.5 * 4 + 0.25 * 6, macro.reward(macro.initialState(), right, state), 1e-9, "The rewards of the option are discounted and added up");
+    var last = macro.transition(state, right);
+    assertEquals(1, last.duration(), "The option ends at a terminal state");
+    assertEquals(8.0, macro.reward(state, right, last), 0.0, "A single transition keeps its reward");
+
+    var stateful = new StatefulSolver<>( macro, depthLimit, exploreConstant, 0.5, verbose );
+    stateful.proving(true);
+    stateful.runTreeSearch(99);
+    assertTrue(stateful.root().isSolved(), "The root is proven");
+    assertEquals(8 * 0.0625, stateful.root().lowerBound(), 1e-9, "The value is discounted by each of the four actions");
+    assertEquals(right, stateful.extractOptimalAction(), "The macro-action is played");
+    assertEquals(3, stateful.root().children(right).iterator().next().duration(), "The node keeps the duration of its option");
+  }
+
+  /**
+   * Tests that visit counts beyond the range of an int are kept and compared without overflow, that a
+   * visit past the largest count fails rather than wrap around, and that long reward sums stay accurate.
+   */
+  @Test
+  void coreLibraryTestLargeVisitCounts() {
+    var stateful = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    stateful.runTreeSearch(9);
+    var children = new java.util.ArrayList<>(stateful.root().children());
+    var most = children.get(0);
+    var least = children.get(1);
+    most.n(3_000_000_000L);
+    least.n(1);
+    assertEquals(3_000_000_000L, most.n(), "The count is kept");
+    assertTrue(stateful.compareN(most, least) > 0, "The comparison does not overflow");
+    assertEquals(most.inducingAction(), stateful.extractOptimalAction(), "The most visited action is played");
+
+    most.n(Long.MAX_VALUE);
+    assertThrows(ArithmeticException.class, () -> stateful.update(most, 1.0), "The count does not wrap around");
+    assertEquals(Long.MAX_VALUE, most.n(), "The count is left at the largest value");
+    assertEquals(1, most.depth(), "The depth is kept");
+
+    least.reward(0);
+    for (var i = 0; i < 10_000_000; i++) least.addReward(0.1);
+    assertEquals(1_000_000, least.reward(), 1e-7, "The reward sum is compensated");
+  }
+
+  /**
+   * Tests that a [StatefulSolver] that proves values solves a small deterministic tree, ends the search
+   * once the root is proven, then plays the proven best action, and scores a solved child it is sent
+   * into by its proven value.
+   */
+  @Test
+  void coreLibraryTestProvenValues() {
+    var deterministicMDP = new StochasticMDP(1.0) {
+      @Override
+      public boolean isTerminal(StochasticState state) {
+        return state.counter() >= 3;
+      }
+    };
+    var stateful = new StatefulSolver<>( deterministicMDP, depthLimit, exploreConstant, 0.5, verbose );
+    stateful.proving(true);
+    stateful.runTreeSearch(99);
+    var root = stateful.root();
+    assertTrue(root.isSolved(), "The root is proven");
+    assertTrue(root.n() < 99, "The search ends once the root is proven");
+    assertEquals(6 * 0.125, root.lowerBound(), 1e-9, "The proven value is the discounted best reward");
+    assertEquals(StochasticAction.RIGHT, stateful.extractOptimalAction(), "The proven best action is played");
+    for (var child:root.children()) {
+      var n = child.n();
+      var reward = child.reward();
+      stateful.runRootActionIteration(child.inducingAction());
+      assertEquals(reward + child.lowerBound(), child.reward(), 1e-9, "A solved child is scored by its proven value");
+      assertEquals(n + 1, child.n(), "A solved child is visited as a leaf");
+    }
+  }
+
+  /**
+   * Tests that in adversarial mode the solver expects the opponent to reply with their best move, and so
+   * prefers the safe first move to the one that only pays off if the opponent cooperates.
+   */
+  @Test
+  void coreLibraryTestAdversarialMode() {
+    var stateful = new StatefulSolver<>( new StochasticGame(), depthLimit, exploreConstant, 1.0, verbose );
+    assertTrue(stateful.adversarial(), "Adversarial mode is on for an AdversarialMDP");
+    stateful.runTreeSearch(199);
+    assertEquals(StochasticAction.LEFT, stateful.extractOptimalAction(), "The safe move is the most visited");
+
+    var proving = new StatefulSolver<>( new StochasticGame(), depthLimit, exploreConstant, 1.0, verbose );
+    proving.proving(true);
+    proving.valueBounds(-1, 1);
+    proving.runTreeSearch(199);
+    assertTrue(proving.root().isSolved(), "The root is proven");
+    assertEquals(0.4, proving.root().lowerBound(), 1e-9, "The proven value is the minimax value");
+    assertEquals(StochasticAction.LEFT, proving.extractOptimalAction(), "The safe move is proven best");
+  }
+
+  /**
+   * Tests that the implicit minimax values backed up from alpha-beta probes reach the minimax value of
+   * the game at the root.
+   */
+  @Test
+  void coreLibraryTestImplicitMinimax() {
+    var stateful = new StatefulSolver<>( new StochasticGame(), depthLimit, exploreConstant, 1.0, verbose );
+    stateful.leafEvaluator(state -> 0);
+    stateful.minimaxWeight(0.5);
+    stateful.minimaxDepth(2);
+    stateful.runTreeSearch(99);
+    assertEquals(0.4, stateful.root().minimax(), 1e-9, "The root has the minimax value");
+    assertEquals(StochasticAction.LEFT, stateful.extractOptimalAction(), "The safe move is the most visited");
+  }
+
+  /**
+   * Tests that Sequential Halving at the root spends exactly the given budget, recommends the safe move
+   * of the game, also runs on a time budget, and halves only the root actions left by a symmetry.
+   */
+  @Test
+  void coreLibraryTestSequentialHalving() {
+    var stateful = new StatefulSolver<>( new StochasticGame(), depthLimit, exploreConstant, 1.0, verbose );
+    stateful.sequentialHalving(true);
+    stateful.runTreeSearch(99);
+    assertEquals(99L, stateful.root().n(), "The budget is spent exactly");
+    assertEquals(StochasticAction.LEFT, stateful.extractOptimalAction(), "The safe move is recommended");
+
+    var timed = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    timed.sequentialHalving(true);
+    timed.runTreeSearch(java.time.Duration.ofMillis(20));
+    assertTrue(timed.root().n() > 0, "Iterations run within the time budget");
+    assertNotNull(timed.extractOptimalAction(), "An action is recommended");
+
+    var symmetric = new StatefulSolver<>( testMDP, depthLimit, exploreConstant, rewardDiscount, verbose );
+    symmetric.symmetry(new StochasticMirror());
+    symmetric.sequentialHalving(true);
+    symmetric.runTreeSearch(20);
+    assertEquals(20L, symmetric.root().n(), "The budget is spent exactly");
+    assertNotNull(symmetric.recommendation(), "Halving runs over the distinct root actions");
+  }
+
+  /**
+   * Tests that NRPA, with parallel searches at the top level, and NMC both find the best sequence of a
+   * small deterministic MDP, and that only an MDP declared deterministic is accepted.
+   */
+  @Test
+  void coreLibraryTestNestedSolver() {
+    class DeterministicStochasticMDP extends StochasticMDP implements DeterministicMDP<StochasticState, StochasticAction> {
+      DeterministicStochasticMDP() {
+        super(1.0);
+      }
+      @Override
+      public boolean isTerminal(StochasticState state) {
+        return state.counter() >= 3;
+      }
+    }
+    var nested = new NestedSolver<StochasticState, StochasticAction>( new DeterministicStochasticMDP(), (state, action) -> action.ordinal(), 2, depthLimit, 1.0, verbose );
+    nested.random(RandomSource.of(42));
+    nested.parallelism(2);
+    assertEquals(6.0, nested.runNRPA(2, 10), 0.0, "NRPA finds the best score");
+    assertEquals(java.util.List.of(StochasticAction.RIGHT, StochasticAction.RIGHT, StochasticAction.RIGHT), nested.bestSequence(), "NRPA finds the best sequence");
+    assertEquals(6.0, nested.runNestedMonteCarlo(1), 0.0, "NMC finds the best score");
+    assertEquals(StochasticAction.RIGHT, nested.extractOptimalAction(), "NMC starts the best sequence");
+    assertThrows(IllegalStateException.class, () -> new NestedSolver<StochasticState, StochasticAction>( new StochasticMDP(0.75), (state, action) -> action.ordinal(), 2, depthLimit, 1.0, verbose ), "MDPs not declared deterministic are refused");
+    assertNotNull(new NestedSolver<StochasticState, StochasticAction>( new DeterminizedMDP<>(testMDP, 7), (state, action) -> action.ordinal(), 2, depthLimit, 1.0, verbose ), "A determinization is accepted");
+  }
+
+  /**
+   * Tests that determinized transitions repeat and keep the players of the wrapped MDP, and that the
+   * ensemble searches every tree and adds up their root statistics.
+   */
+  @Test
+  void coreLibraryTestEnsembleSolver() {
+    var determinized = new DeterminizedMDP<>( testMDP, 7 );
+    var state = testMDP.initialState();
+    assertEquals(determinized.transition(state, StochasticAction.LEFT), determinized.transition(state, StochasticAction.LEFT), "Transitions are determined");
+    var game = new DeterminizedMDP<>( new StochasticGame(), 7 );
+    assertNotNull(game.extension(AdversarialMDP.class), "The game stays adversarial");
+    assertNull(game.extension(MutableMDP.class), "Undeterminized transitions are hidden");
+
+    var ensemble = new EnsembleSolver<>( testMDP, 4, depthLimit, exploreConstant, rewardDiscount, verbose );
+    ensemble.random(RandomSource.of(42));
+    ensemble.runTreeSearch(99);
+    var visits = 0L;
+    for (var solver:ensemble.solvers()) {
+      assertEquals(99L, solver.root().n(), "Every tree is searched");
+      for (var child:solver.root().children()) visits += child.n();
+    }
+    var total = 0L;
+    for (var statistics:ensemble.rootStatistics().values()) total += statistics.n();
+    assertEquals(visits, total, "The root statistics add up");
+    assertNotNull(ensemble.extractOptimalAction(), "An action is recommended");
+  }
+
   // TestStochastic classes
 
   enum StochasticAction { LEFT, RIGHT; }
@@ -156,7 +727,11 @@ class CoreLibraryTests {
     }
     @Override
     public StochasticState transition(StochasticState state, StochasticAction action) {
-      var directionIndex = Math.random() < bias ?
+      return transition(state, action, RandomSource.create());
+    }
+    @Override
+    public StochasticState transition(StochasticState state, StochasticAction action, RandomSource random) {
+      var directionIndex = random.nextDouble() < bias ?
         switch(action) {
           case LEFT -> state.stateIndex - 1;
           case RIGHT -> state.stateIndex + 1;
@@ -173,4 +748,140 @@ class CoreLibraryTests {
     }
   }
 
+  /**
+   * The stochastic MDP on a state that is updated in place.
+   */
+  static final class MutableStochasticState {
+    int stateIndex;
+    int counter;
+    MutableStochasticState(int stateIndex, int counter) {
+      this.stateIndex = stateIndex;
+      this.counter = counter;
+    }
+  }
+
+  class MutableStochasticMDP implements MutableMDP<MutableStochasticState, StochasticAction> {
+
+    MutableStochasticMDP(double bias) {
+      this.bias = bias;
+    }
+
+    private final double bias;
+    int applied;
+
+    @Override
+    public MutableStochasticState initialState() {
+      return new MutableStochasticState(0,0);
+    }
+    @Override
+    public boolean isTerminal(MutableStochasticState state) {
+      return false;
+    }
+    @Override
+    public double reward(MutableStochasticState previousState, StochasticAction action, MutableStochasticState state) {
+      return state.stateIndex * 2;
+    }
+    @Override
+    public MutableStochasticState transition(MutableStochasticState state, StochasticAction action) {
+      return transition(state, action, RandomSource.create());
+    }
+    @Override
+    public MutableStochasticState transition(MutableStochasticState state, StochasticAction action, RandomSource random) {
+      var next = new MutableStochasticState(state.stateIndex, state.counter);
+      apply(next, action, random);
+      return next;
+    }
+    @Override
+    public long apply(MutableStochasticState state, StochasticAction action, RandomSource random) {
+      var step = (action == StochasticAction.RIGHT) == (random.nextDouble() < bias) ? 1 : -1;
+      state.stateIndex += step;
+      state.counter++;
+      applied++;
+      return step;
+    }
+    @Override
+    public void undo(MutableStochasticState state, StochasticAction action, long token) {
+      state.stateIndex -= (int) token;
+      state.counter--;
+    }
+    @Override
+    public Set<StochasticAction> actions(MutableStochasticState state) {
+      return Set.of(StochasticAction.values());
+    }
+  }
+
+  /**
+   * The mirror symmetry of the MDP, which negates the state index and swaps the actions.
+   */
+  class StochasticMirror implements Symmetry<StochasticState, StochasticAction> {
+    @Override
+    public int count() {
+      return 2;
+    }
+    @Override
+    public StochasticState state(int symmetry, StochasticState state) {
+      return symmetry == 0 ? state : new StochasticState(-state.stateIndex(), state.counter());
+    }
+    @Override
+    public StochasticAction action(int symmetry, StochasticAction action) {
+      return symmetry == 0 ? action : action == StochasticAction.LEFT ? StochasticAction.RIGHT : StochasticAction.LEFT;
+    }
+  }
+
+  /**
+   * A two move game on the deterministic MDP: LEFT is safe, while after RIGHT the opponent decides
+   * between the best and the worst reward.
+   */
+  class StochasticGame extends StochasticMDP implements AdversarialMDP<StochasticState, StochasticAction> {
+
+    StochasticGame() {
+      super(1.0);
+    }
+
+    @Override
+    public int playerToMove(StochasticState state) {
+      return state.counter() % 2;
+    }
+    @Override
+    public boolean isTerminal(StochasticState state) {
+      return state.counter() >= 2;
+    }
+    @Override
+    public double reward(StochasticState previousState, StochasticAction action, StochasticState state) {
+      if (!isTerminal(state)) return 0;
+      return previousState.stateIndex() < 0 ? 0.4 : state.stateIndex() > 1 ? 1.0 : -1.0;
+    }
+  }
+
+  record StochasticIntent(StochasticState state, StochasticAction action) {}
+
+  class ChanceStochasticMDP extends StochasticMDP implements ChanceMDP<StochasticState, StochasticAction, StochasticIntent> {
+
+    ChanceStochasticMDP(double bias) {
+      super(bias);
+    }
+
+    @Override
+    public StochasticIntent afterstate(StochasticState state, StochasticAction action) {
+      return new StochasticIntent(state, action);
+    }
+    @Override
+    public StochasticState outcome(StochasticIntent intent, RandomSource random) {
+      return super.transition(intent.state, intent.action, random);
+    }
+    @Override
+    public Map<StochasticState, Double> outcomes(StochasticIntent intent) {
+      var state = intent.state;
+      var step = intent.action == StochasticAction.LEFT ? -1 : 1;
+      return Map.of(
+        new StochasticState(state.stateIndex + step, state.counter + 1), 0.75,
+        new StochasticState(state.stateIndex - step, state.counter + 1), 0.25
+      );
+    }
+    @Override
+    public StochasticState transition(StochasticState state, StochasticAction action, RandomSource random) {
+      return ChanceMDP.super.transition(state, action, random);
+    }
+  }
+
 }